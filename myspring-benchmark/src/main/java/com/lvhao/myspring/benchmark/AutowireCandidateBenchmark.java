@@ -0,0 +1,41 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.beans.factory.AnnotatedBeanDefinition;
+import com.lvhao.myspring.beans.factory.DefaultListableBeanFactory;
+import com.lvhao.myspring.benchmark.beans.Cache;
+import com.lvhao.myspring.benchmark.beans.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同registry规模下findAutowireCandidate的耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutowireCandidateBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    private int registrySize;
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Setup
+    public void setup() {
+        beanFactory = new DefaultListableBeanFactory();
+        for (int i = 0; i < registrySize - 1; i++) {
+            beanFactory.registerBeanDefinition("cache" + i, new AnnotatedBeanDefinition(Cache.class));
+        }
+        beanFactory.registerBeanDefinition("repository", new AnnotatedBeanDefinition(Repository.class));
+        beanFactory.preInstantiateSingletons();
+    }
+
+    @Benchmark
+    public Object findAutowireCandidate() {
+        return beanFactory.findAutowireCandidate(Repository.class, "repository");
+    }
+}
@@ -0,0 +1,55 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.benchmark.beans.CachedReportService;
+import com.lvhao.myspring.benchmark.beans.ReportService;
+import com.lvhao.myspring.context.AnnotationConfigApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Cacheable方法的调用吞吐量: 通过代理命中缓存、通过代理调用未缓存的方法, 以及直接调用目标对象
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheableBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+
+    private ReportService proxy;
+
+    private ReportService target;
+
+    private int id;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(CachedReportService.class);
+        proxy = context.getBean(ReportService.class);
+        target = new CachedReportService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long cachedHit() {
+        return proxy.report(id++ & 127);
+    }
+
+    @Benchmark
+    public long proxiedUncached() {
+        return proxy.reportUncached(id++ & 127);
+    }
+
+    @Benchmark
+    public long direct() {
+        return target.report(id++ & 127);
+    }
+}
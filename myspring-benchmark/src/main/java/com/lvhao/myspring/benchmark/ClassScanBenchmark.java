@@ -0,0 +1,65 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.util.ClassUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描生成的包: scanClassNames只列出类名, scanClasses还会加载每个类。
+ * 每次调用前都会换一个新的类加载器, 保证类需要重新加载
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassScanBenchmark {
+
+    private static final String BASE_PACKAGE = "bench.classes";
+
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    @Param({"500", "2000"})
+    private int classCount;
+
+    private GeneratedClasspath classpath;
+
+    @Setup
+    public void setup() throws IOException {
+        classpath = new GeneratedClasspath();
+        for (int i = 0; i < classCount; i++) {
+            classpath.addClass(BASE_PACKAGE + ".pkg" + (i / CLASSES_PER_PACKAGE) + ".Class" + i, i % 2 == 0);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        classpath.installNewClassLoader();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classpath.close();
+    }
+
+    @Benchmark
+    public Set<String> scanClassNames() {
+        return check(ClassUtils.scanClassNames(BASE_PACKAGE));
+    }
+
+    @Benchmark
+    public Set<Class<?>> scanClasses() {
+        return check(ClassUtils.scanClasses(BASE_PACKAGE));
+    }
+
+    private <T> Set<T> check(Set<T> result) {
+        if (result.size() != classCount) {
+            throw new IllegalStateException("Expected " + classCount + " classes but found " + result.size());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.util.ClassUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在生成的目录树上扫描多个base package, 共 4 * 30 * 100 = 12000 个class文件
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DirectoryScanBenchmark {
+
+    private static final List<String> BASE_PACKAGES = Arrays.asList("bench.a", "bench.b", "bench.c", "bench.d");
+
+    private static final int PACKAGES_PER_BASE_PACKAGE = 30;
+
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    private GeneratedClasspath classpath;
+
+    @Setup
+    public void setup() throws IOException {
+        classpath = new GeneratedClasspath();
+        byte[] content = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+        for (String basePackage : BASE_PACKAGES) {
+            for (int i = 0; i < PACKAGES_PER_BASE_PACKAGE; i++) {
+                String dir = basePackage.replace('.', '/') + "/pkg" + i + "/";
+                for (int j = 0; j < CLASSES_PER_PACKAGE; j++) {
+                    classpath.addFile(dir + "Class" + j + ".class", content);
+                }
+            }
+        }
+        classpath.installNewClassLoader();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classpath.close();
+    }
+
+    /**
+     * 逐个扫描每个base package
+     */
+    @Benchmark
+    public int scanEachPackage() {
+        int count = 0;
+        for (String basePackage : BASE_PACKAGES) {
+            count += ClassUtils.scanClassNames(basePackage).size();
+        }
+        return check(count);
+    }
+
+    /**
+     * 一次并行扫描所有base package
+     */
+    @Benchmark
+    public int scanAllPackages() {
+        Set<String> classNames = ClassUtils.scanClassNames(BASE_PACKAGES);
+        return check(classNames.size());
+    }
+
+    private static int check(int count) {
+        int expected = BASE_PACKAGES.size() * PACKAGES_PER_BASE_PACKAGE * CLASSES_PER_PACKAGE;
+        if (count != expected) {
+            throw new IllegalStateException("Expected " + expected + " classes but found " + count);
+        }
+        return count;
+    }
+}
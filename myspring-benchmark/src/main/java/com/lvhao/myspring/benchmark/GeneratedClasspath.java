@@ -0,0 +1,174 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 基准测试用的临时类路径目录: 可以写入生成的class文件, 并通过新的类加载器安装为线程上下文类加载器
+ */
+public class GeneratedClasspath implements Closeable {
+
+    private final Path root;
+
+    private final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+
+    private URLClassLoader classLoader;
+
+    public GeneratedClasspath() throws IOException {
+        this.root = Files.createTempDirectory("myspring-bench");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 写入一个只有public无参构造器的类
+     *
+     * @param className 类的全限定名
+     * @param component 是否标注@Component
+     */
+    public void addClass(String className, boolean component) throws IOException {
+        String internalName = className.replace('.', '/');
+        addFile(internalName + ".class", generateClass(internalName, component));
+    }
+
+    public void addFile(String path, byte[] content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+
+    /**
+     * 创建一个新的类加载器并设置为当前线程的上下文类加载器, 之前由该对象创建的类加载器会被关闭,
+     * 因此每次调用后生成的类都需要重新加载
+     */
+    public ClassLoader installNewClassLoader() {
+        closeClassLoader();
+        try {
+            this.classLoader = new URLClassLoader(new URL[]{root.toUri().toURL()}, GeneratedClasspath.class.getClassLoader());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Thread.currentThread().setContextClassLoader(this.classLoader);
+        return this.classLoader;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread.currentThread().setContextClassLoader(previousClassLoader);
+        closeClassLoader();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void closeClassLoader() {
+        if (this.classLoader != null) {
+            try {
+                this.classLoader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.classLoader = null;
+        }
+    }
+
+    /**
+     * 生成 public class X { public X() { super(); } } 的字节码 (class文件版本52, 即Java 8)
+     */
+    static byte[] generateClass(String internalName, boolean component) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+
+            // 常量池
+            out.writeShort(12);
+            out.writeByte(1);
+            out.writeUTF(internalName);                                     // #1
+            out.writeByte(7);
+            out.writeShort(1);                                              // #2 this class
+            out.writeByte(1);
+            out.writeUTF("java/lang/Object");                               // #3
+            out.writeByte(7);
+            out.writeShort(3);                                              // #4 super class
+            out.writeByte(1);
+            out.writeUTF("<init>");                                         // #5
+            out.writeByte(1);
+            out.writeUTF("()V");                                            // #6
+            out.writeByte(12);
+            out.writeShort(5);
+            out.writeShort(6);                                              // #7 <init>:()V
+            out.writeByte(10);
+            out.writeShort(4);
+            out.writeShort(7);                                              // #8 Object.<init>
+            out.writeByte(1);
+            out.writeUTF("Code");                                           // #9
+            out.writeByte(1);
+            out.writeUTF("RuntimeVisibleAnnotations");                      // #10
+            out.writeByte(1);
+            out.writeUTF("L" + Component.class.getName().replace('.', '/') + ";"); // #11
+
+            // ACC_PUBLIC | ACC_SUPER, this, super, 没有接口和字段
+            out.writeShort(0x0021);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            // public <init>() { aload_0; invokespecial #8; return; }
+            out.writeShort(1);
+            out.writeShort(0x0001);
+            out.writeShort(5);
+            out.writeShort(6);
+            out.writeShort(1);
+            out.writeShort(9);
+            out.writeInt(17);
+            out.writeShort(1);
+            out.writeShort(1);
+            out.writeInt(5);
+            out.write(new byte[]{0x2A, (byte) 0xB7, 0x00, 0x08, (byte) 0xB1});
+            out.writeShort(0);
+            out.writeShort(0);
+
+            // 类的属性: @Component
+            if (component) {
+                out.writeShort(1);
+                out.writeShort(10);
+                out.writeInt(6);
+                out.writeShort(1);
+                out.writeShort(11);
+                out.writeShort(0);
+            } else {
+                out.writeShort(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
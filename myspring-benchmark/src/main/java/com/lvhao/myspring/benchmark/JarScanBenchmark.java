@@ -0,0 +1,83 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.util.ClassUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 在包含大量条目的合成jar上扫描包下的类名, 其中只有一小部分条目位于被扫描的包下
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarScanBenchmark {
+
+    private static final String SCANNED_PACKAGE = "bench/scan/";
+
+    private static final String OTHER_PACKAGE = "bench/other/";
+
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    @Param({"20000", "50000"})
+    private int entryCount;
+
+    private File jarFile;
+
+    private URLClassLoader classLoader;
+
+    private ClassLoader previousClassLoader;
+
+    @Setup
+    public void setup() throws IOException {
+        jarFile = File.createTempFile("myspring-scan", ".jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile))) {
+            // 和jar工具打出的包一样包含目录条目, 否则类加载器无法通过包路径找到资源
+            out.putNextEntry(new ZipEntry("bench/"));
+            out.putNextEntry(new ZipEntry(SCANNED_PACKAGE));
+            out.putNextEntry(new ZipEntry(OTHER_PACKAGE));
+            for (int i = 0; i < entryCount; i++) {
+                // 十分之一的条目位于被扫描的包下
+                String root = i % 10 == 0 ? SCANNED_PACKAGE : OTHER_PACKAGE;
+                String packageDir = root + "pkg" + (i / CLASSES_PER_PACKAGE) + "/";
+                if (i % CLASSES_PER_PACKAGE == 0) {
+                    out.putNextEntry(new ZipEntry(SCANNED_PACKAGE + "pkg" + (i / CLASSES_PER_PACKAGE) + "/"));
+                    out.putNextEntry(new ZipEntry(OTHER_PACKAGE + "pkg" + (i / CLASSES_PER_PACKAGE) + "/"));
+                }
+                out.putNextEntry(new ZipEntry(packageDir + "Class" + i + ".class"));
+                out.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+                out.closeEntry();
+            }
+        }
+        classLoader = new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, null);
+        previousClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(classLoader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Thread.currentThread().setContextClassLoader(previousClassLoader);
+        classLoader.close();
+        jarFile.delete();
+    }
+
+    @Benchmark
+    public Set<String> scanClassNames() {
+        Set<String> classNames = ClassUtils.scanClassNames("bench.scan");
+        if (classNames.size() != entryCount / 10) {
+            throw new IllegalStateException("Expected " + entryCount / 10 + " classes but found " + classNames.size());
+        }
+        return classNames;
+    }
+}
@@ -0,0 +1,50 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.benchmark.beans.PooledParser;
+import com.lvhao.myspring.benchmark.beans.PrototypeParser;
+import com.lvhao.myspring.benchmark.beans.Repository;
+import com.lvhao.myspring.context.AnnotationConfigApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次使用一个创建成本较高的bean: 原型作用域每次新建, pooled作用域从池中借出并在使用后归还
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class PooledScopeBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(Repository.class, PrototypeParser.class, PooledParser.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int prototype() {
+        PrototypeParser parser = (PrototypeParser) context.getBean("prototypeParser");
+        return parser.parse(1);
+    }
+
+    @Benchmark
+    public int pooled() {
+        PooledParser parser = (PooledParser) context.getBean("pooledParser");
+        try {
+            return parser.parse(1);
+        } finally {
+            context.releaseBean("pooledParser", parser);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.benchmark.beans.Cache;
+import com.lvhao.myspring.benchmark.beans.ConstructorPrototype;
+import com.lvhao.myspring.benchmark.beans.Repository;
+import com.lvhao.myspring.benchmark.beans.SetterPrototype;
+import com.lvhao.myspring.beans.factory.BeanPostProcessor;
+import com.lvhao.myspring.beans.factory.GeneratedBeanFactory;
+import com.lvhao.myspring.context.AnnotationConfigApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原型bean的getBean吞吐量, codegen=false时忽略编译期生成的工厂, 通过反射创建和注入;
+ * postProcessors=true时注册若干个不处理这些bean的BeanPostProcessor
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrototypeBenchmark {
+
+    @Param({"true", "false"})
+    private boolean codegen;
+
+    @Param({"false", "true"})
+    private boolean postProcessors;
+
+    private AnnotationConfigApplicationContext context;
+
+    @Setup
+    public void setup() {
+        System.setProperty(GeneratedBeanFactory.IGNORE_GENERATED_PROPERTY, String.valueOf(!codegen));
+        context = new AnnotationConfigApplicationContext();
+        context.register(Repository.class, Cache.class, SetterPrototype.class, ConstructorPrototype.class);
+        if (postProcessors) {
+            for (int i = 0; i < 4; i++) {
+                context.addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public boolean requiresPostProcessing(Class<?> beanClass, String beanName) {
+                        return false;
+                    }
+                });
+            }
+        }
+        context.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        System.clearProperty(GeneratedBeanFactory.IGNORE_GENERATED_PROPERTY);
+    }
+
+    @Benchmark
+    public Object setterInjection() {
+        return context.getBean("setterPrototype");
+    }
+
+    @Benchmark
+    public Object constructorInjection() {
+        return context.getBean("constructorPrototype");
+    }
+}
@@ -0,0 +1,59 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.benchmark.beans.RefreshConfig;
+import com.lvhao.myspring.context.AnnotationConfigApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的AnnotationConfigApplicationContext启动: 扫描、注册并创建N个生成的单例组件,
+ * 扫描路径下还有同样数量的非组件类。每次调用前都会换一个新的类加载器, 保证类需要重新加载
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefreshBenchmark {
+
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    @Param({"100", "1000"})
+    private int beanCount;
+
+    private GeneratedClasspath classpath;
+
+    @Setup
+    public void setup() throws IOException {
+        classpath = new GeneratedClasspath();
+        for (int i = 0; i < beanCount; i++) {
+            String packageName = RefreshConfig.BASE_PACKAGE + ".pkg" + (i / CLASSES_PER_PACKAGE);
+            classpath.addClass(packageName + ".Bean" + i, true);
+            classpath.addClass(packageName + ".Helper" + i, false);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        classpath.installNewClassLoader();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classpath.close();
+    }
+
+    @Benchmark
+    public AnnotationConfigApplicationContext refresh() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(RefreshConfig.class);
+        if (context.getBeanDefinitionNames().size() != beanCount + 1) {
+            throw new IllegalStateException("Expected " + beanCount + " beans but found "
+                    + (context.getBeanDefinitionNames().size() - 1));
+        }
+        context.close();
+        return context;
+    }
+}
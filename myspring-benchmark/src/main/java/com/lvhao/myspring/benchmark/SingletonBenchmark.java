@@ -0,0 +1,50 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.benchmark.beans.Cache;
+import com.lvhao.myspring.benchmark.beans.Repository;
+import com.lvhao.myspring.context.AnnotationConfigApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已创建的单例的getBean吞吐量: 按名称、按类型和按句柄获取
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SingletonBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+
+    private int repositoryHandle;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(Repository.class, Cache.class);
+        repositoryHandle = context.getBeanHandle("repository");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object getBean() {
+        return context.getBean("repository");
+    }
+
+    @Benchmark
+    public Object getBeanByType() {
+        return context.getBean(Repository.class);
+    }
+
+    @Benchmark
+    public Object getBeanByHandle() {
+        return context.getBean(repositoryHandle);
+    }
+}
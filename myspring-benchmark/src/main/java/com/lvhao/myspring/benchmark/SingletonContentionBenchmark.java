@@ -0,0 +1,58 @@
+package com.lvhao.myspring.benchmark;
+
+import com.lvhao.myspring.beans.factory.AnnotatedBeanDefinition;
+import com.lvhao.myspring.beans.factory.DefaultListableBeanFactory;
+import com.lvhao.myspring.benchmark.beans.SlowInitBean;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时懒加载互不相关的单例: 每个单例的初始化耗时 {@link SlowInitBean#INIT_MILLIS} 毫秒
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SingletonContentionBenchmark {
+
+    @Param({"8"})
+    private int threads;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object concurrentLazySingletons() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        for (int i = 0; i < threads; i++) {
+            beanFactory.registerBeanDefinition("slow" + i, new AnnotatedBeanDefinition(SlowInitBean.class));
+        }
+
+        List<Future<Object>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            String beanName = "slow" + i;
+            futures.add(executor.submit(() -> beanFactory.getBean(beanName)));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        return beanFactory;
+    }
+}
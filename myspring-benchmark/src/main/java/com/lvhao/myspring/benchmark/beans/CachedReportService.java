@@ -0,0 +1,30 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.cache.Cacheable;
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+/**
+ * 每次计算都需要遍历一定次数的报表服务, report的结果会被缓存
+ */
+@Component
+public class CachedReportService implements ReportService {
+
+    @Override
+    @Cacheable(value = "reports", maxSize = 256)
+    public long report(int id) {
+        return compute(id);
+    }
+
+    @Override
+    public long reportUncached(int id) {
+        return compute(id);
+    }
+
+    private static long compute(int id) {
+        long hash = id;
+        for (int i = 0; i < 1000; i++) {
+            hash = hash * 31 + i;
+        }
+        return hash;
+    }
+}
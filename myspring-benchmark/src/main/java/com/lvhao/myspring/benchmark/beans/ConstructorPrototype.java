@@ -0,0 +1,35 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.context.Scope;
+import com.lvhao.myspring.annotation.inject.Autowired;
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+/**
+ * 通过构造器注入依赖的原型bean
+ */
+@Component
+@Scope("prototype")
+public class ConstructorPrototype {
+
+    private final Repository repository;
+
+    private final Cache cache;
+
+    public ConstructorPrototype() {
+        this(null, null);
+    }
+
+    @Autowired
+    public ConstructorPrototype(Repository repository, Cache cache) {
+        this.repository = repository;
+        this.cache = cache;
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+}
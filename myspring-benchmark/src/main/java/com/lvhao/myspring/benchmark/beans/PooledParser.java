@@ -0,0 +1,35 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.context.Scope;
+import com.lvhao.myspring.annotation.inject.Autowired;
+import com.lvhao.myspring.annotation.stereotype.Component;
+import com.lvhao.myspring.beans.factory.ResettableBean;
+
+import java.util.Arrays;
+
+/**
+ * 与PrototypeParser相同, 但是使用pooled作用域, 归还时清空缓冲区
+ */
+@Component
+@Scope("pooled")
+public class PooledParser implements ResettableBean {
+
+    private final byte[] buffer = new byte[PrototypeParser.BUFFER_SIZE];
+
+    private Repository repository;
+
+    @Autowired
+    public void setRepository(Repository repository) {
+        this.repository = repository;
+    }
+
+    public int parse(int input) {
+        buffer[input & (PrototypeParser.BUFFER_SIZE - 1)]++;
+        return buffer[0];
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(buffer, (byte) 0);
+    }
+}
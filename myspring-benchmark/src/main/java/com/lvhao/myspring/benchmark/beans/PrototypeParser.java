@@ -0,0 +1,29 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.context.Scope;
+import com.lvhao.myspring.annotation.inject.Autowired;
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+/**
+ * 创建成本较高的原型bean: 每个实例持有一块较大的缓冲区
+ */
+@Component
+@Scope("prototype")
+public class PrototypeParser {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private Repository repository;
+
+    @Autowired
+    public void setRepository(Repository repository) {
+        this.repository = repository;
+    }
+
+    public int parse(int input) {
+        buffer[input & (BUFFER_SIZE - 1)]++;
+        return buffer[0];
+    }
+}
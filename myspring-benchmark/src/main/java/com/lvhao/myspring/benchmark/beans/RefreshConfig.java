@@ -0,0 +1,14 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.context.ComponentScan;
+import com.lvhao.myspring.annotation.stereotype.Configuration;
+
+/**
+ * 扫描RefreshBenchmark生成的组件
+ */
+@Configuration
+@ComponentScan(basePackages = RefreshConfig.BASE_PACKAGE)
+public class RefreshConfig {
+
+    public static final String BASE_PACKAGE = "bench.refresh";
+}
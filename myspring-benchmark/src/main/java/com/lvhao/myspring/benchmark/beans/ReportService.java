@@ -0,0 +1,8 @@
+package com.lvhao.myspring.benchmark.beans;
+
+public interface ReportService {
+
+    long report(int id);
+
+    long reportUncached(int id);
+}
@@ -0,0 +1,7 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+@Component
+public class Repository {
+}
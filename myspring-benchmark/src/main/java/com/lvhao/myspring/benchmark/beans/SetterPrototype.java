@@ -0,0 +1,54 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.annotation.context.Scope;
+import com.lvhao.myspring.annotation.inject.Autowired;
+import com.lvhao.myspring.annotation.stereotype.Component;
+
+/**
+ * 通过@Autowired方法注入依赖的原型bean
+ */
+@Component
+@Scope("prototype")
+public class SetterPrototype {
+
+    private Repository repository;
+
+    private Cache cache;
+
+    private int hits;
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    @Autowired
+    public void setRepository(Repository repository) {
+        this.repository = repository;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    @Autowired
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public void setHits(int hits) {
+        this.hits = hits;
+    }
+
+    public void hit() {
+        hits++;
+    }
+
+    @Override
+    public String toString() {
+        return "SetterPrototype{hits=" + hits + "}";
+    }
+}
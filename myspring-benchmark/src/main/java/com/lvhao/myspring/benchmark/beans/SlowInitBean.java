@@ -0,0 +1,16 @@
+package com.lvhao.myspring.benchmark.beans;
+
+import com.lvhao.myspring.beans.factory.InitializingBean;
+
+/**
+ * 初始化比较慢的bean (模拟打开连接池、加载数据等操作)
+ */
+public class SlowInitBean implements InitializingBean {
+
+    public static final long INIT_MILLIS = 2;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Thread.sleep(INIT_MILLIS);
+    }
+}
@@ -0,0 +1,326 @@
+package com.lvhao.myspring.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译期为每个@Component类生成GeneratedBeanFactory的实现 (类名为bean class的binary name加上"_BeanFactory"),
+ * 用直接调用构造器和@Autowired方法代替运行时的反射。
+ * <p>
+ * 构造器的挑选规则和运行时相同; 运行时需要在多个构造器之间回退, 或者存在私有的构造器/@Autowired方法、
+ * 基本类型参数、类型变量参数的类不会生成工厂, 运行时仍然通过反射创建
+ */
+@SupportedAnnotationTypes("*")
+public class BeanFactoryProcessor extends AbstractProcessor {
+
+    private static final String CLASS_NAME_SUFFIX = "_BeanFactory";
+
+    private static final String AUTOWIRED_ANNOTATION = "com.lvhao.myspring.annotation.inject.Autowired";
+
+    private static final String OBJECT_PROVIDER = "com.lvhao.myspring.beans.factory.ObjectProvider";
+
+    private static final String GENERATED_BEAN_FACTORY = "com.lvhao.myspring.beans.factory.GeneratedBeanFactory";
+
+    private static final String AUTOWIRE_CAPABLE_BEAN_FACTORY = "com.lvhao.myspring.beans.factory.AutowireCapableBeanFactory";
+
+    private static final String BEAN_CREATION_EXCEPTION = "com.lvhao.myspring.exception.BeanCreationException";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            processElement(element);
+        }
+        return false;
+    }
+
+    private void processElement(Element element) {
+        if (element.getKind() == ElementKind.CLASS
+                && ComponentIndexProcessor.isComponent(element, new HashSet<>())) {
+            TypeElement beanClass = (TypeElement) element;
+            if (isAccessible(beanClass)) {
+                generate(beanClass);
+            }
+        }
+        // 嵌套类
+        for (Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.CLASS) {
+                processElement(enclosed);
+            }
+        }
+    }
+
+    /**
+     * 生成的工厂与bean class在同一个包中, bean class不能是抽象类、非静态内部类或者私有的嵌套类
+     */
+    private boolean isAccessible(TypeElement beanClass) {
+        if (beanClass.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (Element e = beanClass; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement type = (TypeElement) e;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement beanClass) {
+        ExecutableElement constructor = determineConstructor(beanClass);
+        if (constructor == null || !isSupported(constructor)) {
+            return;
+        }
+        List<ExecutableElement> autowiredMethods = new ArrayList<>();
+        for (Element enclosed : beanClass.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.METHOD && findAutowired(enclosed) != null) {
+                ExecutableElement method = (ExecutableElement) enclosed;
+                if (method.getModifiers().contains(Modifier.STATIC) || !isSupported(method)) {
+                    return;
+                }
+                autowiredMethods.add(method);
+            }
+        }
+
+        String packageName = getPackageName(beanClass);
+        String binaryName = processingEnv.getElementUtils().getBinaryName(beanClass).toString();
+        String factorySimpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                + CLASS_NAME_SUFFIX;
+        String factoryName = packageName.isEmpty() ? factorySimpleName : packageName + "." + factorySimpleName;
+        String beanType = processingEnv.getTypeUtils().erasure(beanClass.asType()).toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * 由myspring-processor为{@link ").append(beanType).append("}生成, 请勿修改\n */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(factorySimpleName)
+                .append(" implements ").append(GENERATED_BEAN_FACTORY).append(" {\n\n");
+
+        // instantiate
+        source.append("    @Override\n");
+        source.append("    public Object instantiate(").append(AUTOWIRE_CAPABLE_BEAN_FACTORY)
+                .append(" beanFactory, String beanName) {\n");
+        List<String> arguments = appendArguments(source, constructor, "        ");
+        for (int i = 0; i < arguments.size(); i++) {
+            if (!isObjectProvider(constructor.getParameters().get(i).asType())) {
+                source.append("        if (").append(arguments.get(i)).append(" == null) {\n");
+                source.append("            throw new ").append(BEAN_CREATION_EXCEPTION)
+                        .append("(\"No proper constructors can be invoked: \" + beanName);\n");
+                source.append("        }\n");
+            }
+        }
+        source.append("        return new ").append(beanType).append("(");
+        appendCastArguments(source, constructor, arguments);
+        source.append(");\n");
+        source.append("    }\n\n");
+
+        // populate
+        source.append("    @Override\n");
+        source.append("    public void populate(Object bean, ").append(AUTOWIRE_CAPABLE_BEAN_FACTORY)
+                .append(" beanFactory, String beanName) {\n");
+        if (!autowiredMethods.isEmpty()) {
+            source.append("        ").append(beanType).append(" target = (").append(beanType).append(") bean;\n");
+        }
+        for (ExecutableElement method : autowiredMethods) {
+            // 存在不被满足的依赖 (解析结果为null或者解析时抛出BeanCreationException) 时跳过该方法, 与反射注入一致
+            source.append("        try {\n");
+            List<String> methodArguments = appendArguments(source, method, "            ");
+            List<String> required = new ArrayList<>();
+            for (int i = 0; i < methodArguments.size(); i++) {
+                if (!isObjectProvider(method.getParameters().get(i).asType())) {
+                    required.add(methodArguments.get(i) + " != null");
+                }
+            }
+            String indent = "            ";
+            if (!required.isEmpty()) {
+                source.append(indent).append("if (").append(String.join(" && ", required)).append(") {\n");
+                indent += "    ";
+            }
+            source.append(indent).append("target.").append(method.getSimpleName()).append("(");
+            appendCastArguments(source, method, methodArguments);
+            source.append(");\n");
+            if (!required.isEmpty()) {
+                source.append("            }\n");
+            }
+            source.append("        } catch (").append(BEAN_CREATION_EXCEPTION).append(" e) {\n");
+            source.append("            // 跳过参数不能被满足的方法\n");
+            source.append("        }\n");
+        }
+        source.append("    }\n");
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(factoryName, beanClass);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate " + factoryName + ": " + e.getMessage(), beanClass);
+        }
+    }
+
+    /**
+     * 为每个参数生成一个局部变量: ObjectProvider参数通过getBeanProvider获取, 其余参数通过resolveDependency按类型解析
+     */
+    private List<String> appendArguments(StringBuilder source, ExecutableElement executable, String indent) {
+        List<String> arguments = new ArrayList<>();
+        int index = 0;
+        for (VariableElement parameter : executable.getParameters()) {
+            String argument = "arg" + index++;
+            TypeMirror type = parameter.asType();
+            source.append(indent).append("Object ").append(argument).append(" = ");
+            if (isObjectProvider(type)) {
+                TypeMirror targetType = ((DeclaredType) type).getTypeArguments().get(0);
+                source.append("beanFactory.getBeanProvider(").append(erasure(targetType)).append(".class, beanName);\n");
+            } else {
+                source.append("beanFactory.resolveDependency(").append(erasure(type)).append(".class, beanName);\n");
+            }
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    private void appendCastArguments(StringBuilder source, ExecutableElement executable, List<String> arguments) {
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) {
+                source.append(", ");
+            }
+            source.append("(").append(executable.getParameters().get(i).asType()).append(") ").append(arguments.get(i));
+        }
+    }
+
+    /**
+     * 与运行时的determineConstructors + ConstructorResolver一致:
+     * 唯一的@Autowired构造器, 或者唯一的多参数构造器, 否则使用无参构造器; 需要在多个构造器之间回退时返回null
+     */
+    private ExecutableElement determineConstructor(TypeElement beanClass) {
+        List<ExecutableElement> constructors = new ArrayList<>();
+        for (Element enclosed : beanClass.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.CONSTRUCTOR) {
+                constructors.add((ExecutableElement) enclosed);
+            }
+        }
+
+        List<ExecutableElement> candidates = new ArrayList<>();
+        boolean hasRequired = false;
+        ExecutableElement defaultConstructor = null;
+        for (ExecutableElement constructor : constructors) {
+            AnnotationMirror autowired = findAutowired(constructor);
+            if (autowired != null) {
+                hasRequired |= isRequired(autowired);
+                candidates.add(constructor);
+            } else if (constructor.getParameters().isEmpty()) {
+                defaultConstructor = constructor;
+            }
+        }
+
+        ExecutableElement chosen;
+        if (!candidates.isEmpty()) {
+            if (!hasRequired && defaultConstructor != null) {
+                candidates.add(defaultConstructor);
+            }
+            chosen = (candidates.size() == 1 ? candidates.get(0) : null);
+        } else if (constructors.size() == 1 && constructors.get(0).getParameters().size() > 1) {
+            chosen = constructors.get(0);
+        } else {
+            chosen = defaultConstructor;
+        }
+
+        if (chosen == null || chosen.getModifiers().contains(Modifier.PRIVATE)) {
+            return null;
+        }
+        return chosen;
+    }
+
+    /**
+     * 私有方法、基本类型参数、类型变量参数以及无法确定目标类型的ObjectProvider参数需要反射处理
+     */
+    private boolean isSupported(ExecutableElement executable) {
+        if (executable.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        for (VariableElement parameter : executable.getParameters()) {
+            TypeMirror type = parameter.asType();
+            if (isObjectProvider(type)) {
+                List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+                if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+                    return false;
+                }
+            } else if (type.getKind() != TypeKind.DECLARED && type.getKind() != TypeKind.ARRAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isObjectProvider(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && OBJECT_PROVIDER.equals(((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString());
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static AnnotationMirror findAutowired(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (AUTOWIRED_ANNOTATION.equals(annotationType.getQualifiedName().toString())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRequired(AnnotationMirror autowired) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : autowired.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("required")) {
+                return Boolean.TRUE.equals(entry.getValue().getValue());
+            }
+        }
+        return true;
+    }
+
+    private String getPackageName(TypeElement beanClass) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(beanClass);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.lvhao.myspring.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 编译期生成组件索引: 将所有被@Component (或被@Component标注的注解, 如@Configuration) 标注的类
+ * 写入 {@value #COMPONENTS_RESOURCE_LOCATION}, 运行时读取该索引即可跳过类路径扫描。
+ * <p>
+ * 索引文件每行一个类的全限定名(binary name)。索引总是根据本次编译的类重新生成, 不保留已经删除或改名的类;
+ * 没有组件时也会写入空的索引, 覆盖上一次编译留下的索引。
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/myspring.components";
+
+    private static final String COMPONENT_ANNOTATION = "com.lvhao.myspring.annotation.stereotype.Component";
+
+    private final Set<String> components = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            collectComponents(element);
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collectComponents(Element element) {
+        if (element.getKind() == ElementKind.CLASS && isComponent(element, new HashSet<>())) {
+            components.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+        }
+        // 嵌套类
+        for (Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.CLASS) {
+                collectComponents(enclosed);
+            }
+        }
+    }
+
+    /**
+     * 元素上是否存在@Component注解, 或存在被@Component (间接)标注的注解
+     */
+    static boolean isComponent(Element element, Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            String annotationName = annotationType.getQualifiedName().toString();
+            if (COMPONENT_ANNOTATION.equals(annotationName)) {
+                return true;
+            }
+            if (!annotationName.startsWith("java.lang.annotation.") && visited.add(annotationName)
+                    && isComponent(annotationType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", COMPONENTS_RESOURCE_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String component : components) {
+                    writer.write(component);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write component index " + COMPONENTS_RESOURCE_LOCATION, e);
+        }
+    }
+}
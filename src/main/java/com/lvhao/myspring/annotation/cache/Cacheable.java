@@ -0,0 +1,31 @@
+package com.lvhao.myspring.annotation.cache;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存方法的返回值: 相同参数的再次调用直接返回缓存的结果, 不再执行方法。
+ * <p>
+ * 通过JDK动态代理实现, 因此被标注的方法必须声明在bean实现的接口中, 并且需要按接口类型注入或获取该bean
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * 缓存名称, 同名的方法共享一个缓存; 默认为 类的全限定名.方法名[参数类型], 如 com.example.UserService.find[class java.lang.String]
+     */
+    String value() default "";
+
+    /**
+     * 缓存最多保留的结果数量, 超出时最早写入的结果被淘汰
+     */
+    int maxSize() default 1024;
+
+    /**
+     * 结果写入后的有效时间 (毫秒), 0表示不过期
+     */
+    long expireAfterWriteMillis() default 0;
+}
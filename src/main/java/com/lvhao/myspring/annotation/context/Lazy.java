@@ -0,0 +1,17 @@
+package com.lvhao.myspring.annotation.context;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 延迟初始化的单例: 容器启动时不会创建, 第一次被获取时才创建。
+ * 配合ObjectProvider注入, 可以把不常用的重量级bean移出启动过程
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+
+    boolean value() default true;
+}
@@ -1,7 +1,10 @@
 package com.lvhao.myspring.beans.factory;
 
 import com.lvhao.myspring.annotation.inject.Autowired;
+import com.lvhao.myspring.core.metrics.StartupStep;
 import com.lvhao.myspring.exception.BeanCreationException;
+import com.lvhao.myspring.exception.BeanCurrentlyInCreationException;
+import com.lvhao.myspring.util.AutowireUtils;
 import com.lvhao.myspring.util.ConstructorResolver;
 import com.lvhao.myspring.util.MethodArguments;
 
@@ -9,8 +12,15 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFactory
         implements AutowireCapableBeanFactory {
@@ -20,57 +30,334 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      */
     private boolean allowCircularReferences = true;
 
+    /**
+     * 类 -> 注入点元信息的缓存
+     */
+    private final Map<Class<?>, InjectionMetadata> injectionMetadataCache = new ConcurrentHashMap<>(256);
+
+    /**
+     * 创建bean实例的策略
+     */
+    private InstantiationStrategy instantiationStrategy = new MethodHandleInstantiationStrategy();
+
+    /**
+     * 执行AsyncInitializingBean初始化的线程池, 为null时同步初始化
+     */
+    private Executor asyncInitializationExecutor;
+
+    /**
+     * 正在异步初始化或者异步初始化失败的单例 -> 初始化的结果, 初始化成功后移除
+     */
+    private final Map<String, CompletableFuture<Void>> asyncInitializations = new ConcurrentHashMap<>(16);
+
+    /**
+     * 类 -> 编译期生成的工厂, 不存在生成的工厂时为Optional.empty()
+     */
+    private final Map<Class<?>, Optional<GeneratedBeanFactory>> generatedBeanFactoryCache = new ConcurrentHashMap<>(256);
+
+    /**
+     * 按注册顺序排列的BeanPostProcessor, 注册时整体替换, 缓存的处理链通过数组的引用判断是否过期
+     */
+    private volatile BeanPostProcessor[] beanPostProcessors = new BeanPostProcessor[0];
+
     public AbstractAutowireCapableBeanFactory() {
     }
 
+    /**
+     * 注册BeanPostProcessor, 只对之后创建的bean生效; 已经注册过的处理器会被移到最后
+     */
+    public synchronized void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
+        List<BeanPostProcessor> processors = new ArrayList<>(Arrays.asList(this.beanPostProcessors));
+        processors.remove(beanPostProcessor);
+        processors.add(beanPostProcessor);
+        this.beanPostProcessors = processors.toArray(new BeanPostProcessor[0]);
+    }
+
+    public List<BeanPostProcessor> getBeanPostProcessors() {
+        return Collections.unmodifiableList(Arrays.asList(this.beanPostProcessors));
+    }
+
+    public int getBeanPostProcessorCount() {
+        return this.beanPostProcessors.length;
+    }
+
+    /**
+     * 设置线程池后, 实现了AsyncInitializingBean的单例在后台初始化。
+     * 依赖方会在获取时等待初始化完成, 因此不能与并行创建单例使用同一个线程池
+     */
+    public void setAsyncInitializationExecutor(Executor asyncInitializationExecutor) {
+        this.asyncInitializationExecutor = asyncInitializationExecutor;
+    }
+
+    public Executor getAsyncInitializationExecutor() {
+        return asyncInitializationExecutor;
+    }
+
+    public void setInstantiationStrategy(InstantiationStrategy instantiationStrategy) {
+        this.instantiationStrategy = instantiationStrategy;
+    }
+
+    public InstantiationStrategy getInstantiationStrategy() {
+        return instantiationStrategy;
+    }
+
     @Override
     protected Object createBean(String beanName, BeanDefinition bd) {
-        return doCreateBean(beanName, bd);
+        BeanPostProcessorChain chain = getBeanPostProcessorChain(beanName, bd);
+        // 实例化之前给处理器返回替代对象的机会
+        if (chain.hasInstantiationAwareProcessors()) {
+            Object bean = chain.applyBeforeInstantiation(bd.getBeanClass(), beanName);
+            if (bean != null) {
+                return chain.applyAfterInitialization(bean, beanName);
+            }
+        }
+        return doCreateBean(beanName, bd, chain);
     }
 
-    protected Object doCreateBean(String beanName, BeanDefinition bd) {
-        // 1. 创建
-        final Object bean = createBeanInstance(beanName, bd);
-
-        // 2. 提早暴露到三级缓存
-        boolean earlySingletonExposure = bd.isSingleton() && isSingletonCurrentlyInCreation(beanName);
-        if (earlySingletonExposure) {
-            addSingletonFactory(beanName, () -> bean);
+    /**
+     * 获取缓存在bean definition中的处理链, 不存在或者之后注册了新的处理器时重新计算
+     */
+    private BeanPostProcessorChain getBeanPostProcessorChain(String beanName, BeanDefinition bd) {
+        BeanPostProcessor[] processors = this.beanPostProcessors;
+        AnnotatedBeanDefinition abd = (bd instanceof AnnotatedBeanDefinition) ? (AnnotatedBeanDefinition) bd : null;
+        BeanPostProcessorChain chain = (abd != null) ? abd.postProcessorChain : null;
+        if (chain == null || chain.processors != processors) {
+            chain = BeanPostProcessorChain.build(processors, bd.getBeanClass(), beanName);
+            if (abd != null) {
+                abd.postProcessorChain = chain;
+            }
         }
+        return chain;
+    }
+
+    private Object doCreateBean(String beanName, BeanDefinition bd, BeanPostProcessorChain chain) {
+        StartupStep createStep = getApplicationStartup().start("myspring.beans.create").tag("beanName", beanName);
+        try {
+            // 1. 创建, 存在编译期生成的工厂时不再使用反射
+            GeneratedBeanFactory generatedBeanFactory = findGeneratedBeanFactory(bd.getBeanClass());
+            StartupStep step = getApplicationStartup().start("myspring.beans.instantiate");
+            final Object bean;
+            try {
+                bean = (generatedBeanFactory != null) ?
+                        generatedBeanFactory.instantiate(this, beanName) : createBeanInstance(beanName, bd);
+            } finally {
+                step.end();
+            }
+
+            // 2. 提早暴露到三级缓存
+            boolean earlySingletonExposure = bd.isSingleton() && isSingletonCurrentlyInCreation(beanName);
+            if (earlySingletonExposure) {
+                addSingletonFactory(beanName, () -> bean);
+            }
+
+            // 3. 属性填充, InstantiationAwareBeanPostProcessor可以跳过属性填充
+            step = getApplicationStartup().start("myspring.beans.populate");
+            try {
+                boolean continueWithPropertyPopulation = !chain.hasInstantiationAwareProcessors()
+                        || chain.applyAfterInstantiation(bean, beanName);
+                if (continueWithPropertyPopulation) {
+                    if (generatedBeanFactory != null) {
+                        generatedBeanFactory.populate(bean, this, beanName);
+                    } else {
+                        populateBean(beanName, bd, bean);
+                    }
+                }
+            } finally {
+                step.end();
+            }
 
-        // 3. 属性填充
-        populateBean(beanName, bd, bean);
+            // 4. 初始化
+            step = getApplicationStartup().start("myspring.beans.initialize");
+            Object retBean;
+            try {
+                retBean = initializeBean(beanName, bd, bean, chain);
+            } finally {
+                step.end();
+            }
 
-        // 4. 初始化
-        Object retBean = initializeBean(bean);
+            // 提前暴露的引用已经被注入到其他bean中, 但处理器又替换了bean, 两者不一致
+            if (earlySingletonExposure && retBean != bean && getSingleton(beanName, false) != null) {
+                throw new BeanCurrentlyInCreationException("Error in creating bean: " + beanName
+                        + " has been injected into other beans in its raw version, but has been wrapped by post-processors");
+            }
 
-        // 5. 处理销毁方法
-        registerDisposableBeanIfNecessary(beanName, bean);
+            // 5. 处理销毁方法
+            registerDisposableBeanIfNecessary(beanName, bd, bean);
 
-        return retBean;
+            return retBean;
+        } finally {
+            createStep.end();
+        }
     }
 
-    private void registerDisposableBeanIfNecessary(String beanName, Object bean) {
-        if (bean instanceof DisposableBean) {
+    /**
+     * pooled作用域的bean由对象池负责销毁, 自定义作用域的bean由作用域负责销毁, 都不注册到disposableBeans
+     */
+    private void registerDisposableBeanIfNecessary(String beanName, BeanDefinition bd, Object bean) {
+        if (bd.isPooled()) {
+            return;
+        }
+        if (!bd.isSingleton() && !bd.isPrototype()) {
+            registerScopedDestructionCallback(beanName, bd, bean);
+        } else if (bean instanceof DisposableBean) {
             synchronized (this.disposableBeans) {
                 this.disposableBeans.put(beanName, bean);
             }
         }
     }
 
-    private Object initializeBean(Object bean) {
+    /**
+     * 没有处理器需要处理该bean时, 只调用初始化方法
+     */
+    private Object initializeBean(String beanName, BeanDefinition bd, Object rawBean, BeanPostProcessorChain chain) {
+        Object bean = chain.isEmpty() ? rawBean : chain.applyBeforeInitialization(rawBean, beanName);
+
         if (bean instanceof InitializingBean) {
             try {
                 ((InitializingBean) bean).afterPropertiesSet();
             } catch (Exception e) {
-                e.printStackTrace();
+                throw new BeanCreationException("Error in initializing bean: " + beanName, e);
+            }
+        }
+
+        if (bean instanceof AsyncInitializingBean) {
+            if (this.asyncInitializationExecutor != null && bd.isSingleton()) {
+                startAsyncInitialization(beanName, (AsyncInitializingBean) bean, this.asyncInitializationExecutor);
+            } else {
+                try {
+                    ((AsyncInitializingBean) bean).afterPropertiesSetAsync();
+                } catch (Exception e) {
+                    throw new BeanCreationException("Error in initializing bean: " + beanName, e);
+                }
             }
         }
 
+        return chain.isEmpty() ? bean : chain.applyAfterInitialization(bean, beanName);
+    }
+
+    /**
+     * 先登记再提交: 单例对外可见之前, 其他线程就能查到它的初始化结果
+     */
+    private void startAsyncInitialization(String beanName, AsyncInitializingBean bean, Executor executor) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        this.asyncInitializations.put(beanName, future);
+        try {
+            executor.execute(() -> {
+                try {
+                    bean.afterPropertiesSetAsync();
+                    this.asyncInitializations.remove(beanName, future);
+                    future.complete(null);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            this.asyncInitializations.remove(beanName, future);
+            throw new BeanCreationException("Error in initializing bean: " + beanName, e);
+        }
+    }
+
+    /**
+     * 获取到已经创建的单例后, 如果它还在异步初始化则等待初始化完成; 初始化失败时抛出BeanCreationException
+     */
+    @Override
+    protected Object awaitInitialization(String beanName, Object bean) {
+        if (!this.asyncInitializations.isEmpty()) {
+            CompletableFuture<Void> future = this.asyncInitializations.get(beanName);
+            if (future != null) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    throw new BeanCreationException("Error in initializing bean: " + beanName, e.getCause());
+                }
+            }
+        }
         return bean;
     }
 
+    /**
+     * 等待所有的异步初始化完成, 容器在refresh的最后调用。
+     * 有初始化失败时抛出BeanCreationException, 其余失败作为suppressed异常附加
+     */
+    public void awaitAsyncInitializations() {
+        BeanCreationException failure = null;
+        for (Map.Entry<String, CompletableFuture<Void>> entry : this.asyncInitializations.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                BeanCreationException ex = new BeanCreationException("Error in initializing bean: " + entry.getKey(), e.getCause());
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 查找beanClass对应的编译期生成的工厂, 每个类只查找一次
+     */
+    protected GeneratedBeanFactory findGeneratedBeanFactory(Class<?> beanClass) {
+        Optional<GeneratedBeanFactory> generatedBeanFactory = this.generatedBeanFactoryCache.get(beanClass);
+        if (generatedBeanFactory == null) {
+            generatedBeanFactory = this.generatedBeanFactoryCache.computeIfAbsent(beanClass, this::loadGeneratedBeanFactory);
+        }
+        return generatedBeanFactory.orElse(null);
+    }
+
+    private Optional<GeneratedBeanFactory> loadGeneratedBeanFactory(Class<?> beanClass) {
+        ClassLoader classLoader = beanClass.getClassLoader();
+        if (classLoader == null || Boolean.getBoolean(GeneratedBeanFactory.IGNORE_GENERATED_PROPERTY)) {
+            return Optional.empty();
+        }
+        Class<?> factoryClass;
+        try {
+            factoryClass = Class.forName(beanClass.getName() + GeneratedBeanFactory.CLASS_NAME_SUFFIX, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        }
+        if (!GeneratedBeanFactory.class.isAssignableFrom(factoryClass)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of((GeneratedBeanFactory) factoryClass.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new BeanCreationException("Error in instantiating generated bean factory: " + factoryClass.getName(), e);
+        }
+    }
+
+    /**
+     * 和构造器/方法注入相同: 取满足类型的bean, 单例创建过程中注入的bean会被记录, 用于确定销毁顺序
+     */
+    @Override
+    public Object resolveDependency(Class<?> type, String requestingBeanName) {
+        Map<String, Object> autowireCandidates = findAutowireCandidate(type, null);
+        Object value = null;
+        // 只会循环一次
+        for (Map.Entry<String, Object> candidate : autowireCandidates.entrySet()) {
+            value = (candidate.getValue() instanceof Class) ? getBean(candidate.getKey()) : candidate.getValue();
+            value = adaptBeanInstance(candidate.getKey(), value, type);
+            if (isSingletonCurrentlyInCreation(requestingBeanName)) {
+                registerDependentBean(candidate.getKey(), requestingBeanName);
+            }
+        }
+        return value;
+    }
+
     protected Object createBeanInstance(String beanName, BeanDefinition bd) {
+        // 构造器已经解析过, 直接按照缓存的解析结果创建
+        AnnotatedBeanDefinition abd = (bd instanceof AnnotatedBeanDefinition) ? (AnnotatedBeanDefinition) bd : null;
+        if (abd != null && abd.isConstructorResolved()) {
+            if (abd.getResolvedConstructor() != null) {
+                return new ConstructorResolver(this).instantiateUsingResolvedConstructor(beanName, abd);
+            }
+            return instantiateBean(beanName, bd);
+        }
+
         Class<?> beanClass = bd.getBeanClass();
 
         Constructor<?>[] ctors = determineConstructors(beanClass, beanName);
@@ -78,7 +365,11 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             return autowireConstructor(beanName, bd, ctors);
         }
 
-        return instantiateBean(beanName, bd);
+        Object bean = instantiateBean(beanName, bd);
+        if (abd != null) {
+            abd.cacheResolvedConstructor(null, null);
+        }
+        return bean;
     }
 
     protected Object autowireConstructor(String beanName, BeanDefinition bd, Constructor<?>[] chosenCtors) {
@@ -89,14 +380,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      * 尝试调用默认构造器创建对象，不存在默认构造器会抛异常
      */
     protected Object instantiateBean(final String beanName, final BeanDefinition bd) {
-        Class<?> beanClass = bd.getBeanClass();
-        try {
-            Constructor<?> defaultCons = beanClass.getDeclaredConstructor();
-            defaultCons.setAccessible(true);
-            return defaultCons.newInstance();
-        } catch (Throwable e) {
-            throw new BeanCreationException("Error in instantiating bean: " + beanName);
-        }
+        return getInstantiationStrategy().instantiate(bd, beanName);
     }
 
     /**
@@ -166,43 +450,40 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      * 对bean进行属性填充, 为了简单起见，这里仅仅调用被@Autowired标记的方法
      */
     protected void populateBean(String beanName, BeanDefinition bd, Object bean) {
-        Class<?> beanClass = bean.getClass();
+        InjectionMetadata metadata = findAutowiringMetadata(bean.getClass());
+        metadata.inject(bean, beanName);
+    }
+
+    /**
+     * 从缓存中获取类的注入点元信息, 不存在则解析并放入缓存
+     */
+    protected InjectionMetadata findAutowiringMetadata(Class<?> beanClass) {
+        InjectionMetadata metadata = this.injectionMetadataCache.get(beanClass);
+        if (metadata == null) {
+            metadata = this.injectionMetadataCache.computeIfAbsent(beanClass, this::buildAutowiringMetadata);
+        }
+        return metadata;
+    }
 
-        List<Method> candidates = new ArrayList<>();
+    private InjectionMetadata buildAutowiringMetadata(Class<?> beanClass) {
+        List<InjectionMetadata.InjectedElement> elements = new ArrayList<>();
 
         // 寻找存在@Autowired注解的方法
         Method[] rawMethodCandidates = beanClass.getDeclaredMethods();
         for (Method candidate : rawMethodCandidates) {
             if (candidate.isAnnotationPresent(Autowired.class)) {
-                candidates.add(candidate);
+                candidate.setAccessible(true);
+                elements.add(new AutowiredMethodElement(candidate));
             }
         }
 
-        // 遍历@Autowired注解标注的方法，进行依赖填充
-        for (Method candidate : candidates) {
-            MethodArguments arguments = null;
-            // 尝试解析参数, 如果解析过程中抛出异常, 则说明存在不被满足的依赖, 跳过该方法
-            try {
-                arguments = resolveMethodArguments(candidate);
-            } catch (BeanCreationException e) {
-                continue;
-            }
-
-            Object[] methodArgumentValues = arguments.getMethodArgumentValues();
-            candidate.setAccessible(true);
-            try {
-                candidate.invoke(bean, methodArgumentValues);
-            } catch (Throwable e) {
-                throw new BeanCreationException("Error in populating bean: " + beanName);
-            }
-
-        }
+        return elements.isEmpty() ? InjectionMetadata.EMPTY : new InjectionMetadata(beanClass, elements);
     }
 
     /**
      * 解析方法的参数
      */
-    private MethodArguments resolveMethodArguments(Method candidate)
+    private MethodArguments resolveMethodArguments(Method candidate, String requestingBeanName)
             throws BeanCreationException {
         List<MethodArguments.ArgumentHolder> methodArguments = new ArrayList<>();
 
@@ -213,14 +494,18 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             Class<?> argType = parameter.getType();
             Object argValue = null;
 
-            Map<String, Object> autowireCandidates = findAutowireCandidate(argType, argName);
-            if (autowireCandidates.isEmpty()) {
-                throw new BeanCreationException("Error in resolve method dependency: " + candidate.getName());
+            // ObjectProvider参数注入一个延迟解析的provider
+            Class<?> providerType = AutowireUtils.getObjectProviderType(parameter);
+            if (providerType != null) {
+                argValue = getBeanProvider(providerType, requestingBeanName);
+                methodArguments.add(new MethodArguments.ArgumentHolder(argIndex, argName, argType, argValue));
+                argIndex++;
+                continue;
             }
-            // 只会循环一次
-            for (String beanName : autowireCandidates.keySet()) {
-                argValue = (autowireCandidates.get(beanName) instanceof Class) ?
-                        getBean(beanName) : autowireCandidates.get(beanName);
+
+            argValue = resolveDependency(argType, requestingBeanName);
+            if (argValue == null) {
+                throw new BeanCreationException("Error in resolve method dependency: " + candidate.getName());
             }
 
             methodArguments.add(new MethodArguments.ArgumentHolder(argIndex, argName, argType, argValue));
@@ -230,6 +515,34 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         return new MethodArguments(methodArguments);
     }
 
+    /**
+     * 被@Autowired标注的方法注入点
+     */
+    private class AutowiredMethodElement extends InjectionMetadata.InjectedElement {
+
+        AutowiredMethodElement(Method method) {
+            super(method);
+        }
+
+        @Override
+        protected void inject(Object target, String beanName) {
+            Method method = (Method) this.member;
+            MethodArguments arguments;
+            // 尝试解析参数, 如果解析过程中抛出异常, 则说明存在不被满足的依赖, 跳过该方法
+            try {
+                arguments = resolveMethodArguments(method, beanName);
+            } catch (BeanCreationException e) {
+                return;
+            }
+
+            try {
+                method.invoke(target, arguments.getMethodArgumentValues());
+            } catch (Throwable e) {
+                throw new BeanCreationException("Error in populating bean: " + beanName);
+            }
+        }
+    }
+
     /**
      * 寻找bean工厂中满足参数条件的bean实例 (暂时仅考虑单例, 且假设不会有同类型不会重复, 因此返回的map中最多只有一个)
      */
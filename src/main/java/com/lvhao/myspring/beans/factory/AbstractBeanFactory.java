@@ -1,18 +1,152 @@
 package com.lvhao.myspring.beans.factory;
 
+import com.lvhao.myspring.core.metrics.ApplicationStartup;
+import com.lvhao.myspring.exception.BeanCreationException;
+import com.lvhao.myspring.exception.BeanDestructionException;
+import com.lvhao.myspring.exception.NoSuchBeanDefinitionException;
+import com.lvhao.myspring.exception.NoUniqueBeanDefinitionException;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 提供了对BeanFactory的默认实现, 并且继承了DefaultSingletonBeanRegistry
  */
 public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry
         implements BeanFactory {
 
+    /**
+     * 记录bean创建各阶段耗时, 默认不记录
+     */
+    private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+    /**
+     * beanName -> pooled作用域bean的对象池
+     */
+    private final Map<String, BeanPool> beanPools = new ConcurrentHashMap<>();
+
+    /**
+     * 每个对象池最多保留的空闲对象数量
+     */
+    private int poolMaxIdle = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 作用域名称 -> 自定义作用域, 默认注册了thread
+     */
+    private final Map<String, Scope> scopes = new ConcurrentHashMap<>(8);
+
+    public AbstractBeanFactory() {
+        registerScope(SimpleThreadScope.SCOPE_NAME, new SimpleThreadScope());
+    }
+
+    public void setApplicationStartup(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    public ApplicationStartup getApplicationStartup() {
+        return applicationStartup;
+    }
+
+    /**
+     * 注册自定义作用域, 同名的作用域会被替换。singleton、prototype和pooled是内置的, 不能注册
+     */
+    public void registerScope(String scopeName, Scope scope) {
+        if (BeanDefinition.SCOPE_SINGLETON.equals(scopeName) || BeanDefinition.SCOPE_PROTOTYPE.equals(scopeName)
+                || BeanDefinition.SCOPE_POOLED.equals(scopeName)) {
+            throw new IllegalArgumentException("Cannot replace built-in scopes 'singleton', 'prototype' and 'pooled'");
+        }
+        this.scopes.put(scopeName, scope);
+    }
+
+    /**
+     * 获取注册的作用域, 不存在时返回null
+     */
+    public Scope getRegisteredScope(String scopeName) {
+        return this.scopes.get(scopeName);
+    }
+
+    /**
+     * 设置每个对象池最多保留的空闲对象数量, 只对之后创建的对象池生效
+     */
+    public void setPoolMaxIdle(int poolMaxIdle) {
+        this.poolMaxIdle = poolMaxIdle;
+    }
+
+    /**
+     * 获取pooled作用域bean的对象池 (包含池的统计信息), 还没有借出过该bean时返回null
+     */
+    public BeanPool getBeanPool(String beanName) {
+        return this.beanPools.get(beanName);
+    }
 
     @Override
     public Object getBean(String name) {
         return doGetBean(name);
     }
 
+    @Override
+    public <T> T getBean(Class<T> requiredType) {
+        List<String> beanNames = getBeanNamesForType(requiredType);
+        if (beanNames.isEmpty()) {
+            throw new NoSuchBeanDefinitionException("no bean of type " + requiredType.getName() + " is defined");
+        }
+        if (beanNames.size() > 1) {
+            throw new NoUniqueBeanDefinitionException(requiredType, beanNames);
+        }
+        return adaptBeanInstance(beanNames.get(0), doGetBean(beanNames.get(0)), requiredType);
+    }
+
+    @Override
+    public <T> ObjectProvider<T> getBeanProvider(Class<T> requiredType) {
+        return new DependencyObjectProvider<>(requiredType, null);
+    }
+
+    /**
+     * 获取注入到requestingBeanName中的provider, provider解析出单例时会记录requestingBeanName依赖该单例
+     */
+    public <T> ObjectProvider<T> getBeanProvider(Class<T> requiredType, String requestingBeanName) {
+        return new DependencyObjectProvider<>(requiredType, requestingBeanName);
+    }
+
+    @Override
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        List<String> beanNames = getBeanNamesForType(type);
+        Map<String, T> beans = new LinkedHashMap<>(beanNames.size() * 2);
+        for (String beanName : beanNames) {
+            beans.put(beanName, adaptBeanInstance(beanName, doGetBean(beanName), type));
+        }
+        return beans;
+    }
+
+    /**
+     * 类型索引按bean definition的类建立, 而BeanPostProcessor可能把bean替换为只实现了接口的JDK代理 (如@Cacheable),
+     * 此时按实现类获取或注入的bean不是requiredType的实例, 抛出说明原因的BeanCreationException而不是ClassCastException
+     */
+    public <T> T adaptBeanInstance(String beanName, Object bean, Class<T> requiredType) {
+        if (bean == null || requiredType.isInstance(bean)) {
+            return requiredType.cast(bean);
+        }
+        String message = "Bean '" + beanName + "' is expected to be of type " + requiredType.getName()
+                + " but was actually of type " + bean.getClass().getName();
+        if (Proxy.isProxyClass(bean.getClass())) {
+            message += ", a JDK proxy implementing " + Arrays.toString(bean.getClass().getInterfaces())
+                    + "; inject or look it up by one of these interfaces";
+        }
+        throw new BeanCreationException(message);
+    }
+
     protected Object doGetBean(String beanName) {
+        return awaitInitialization(beanName, getBeanInstance(beanName));
+    }
+
+    /**
+     * 获取或创建bean, 不等待单例的异步初始化完成
+     */
+    protected Object getBeanInstance(String beanName) {
         Object bean;
 
         // 1. 先尝试从三级缓存获取
@@ -32,12 +166,150 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry
             bean = getSingleton(beanName, () -> createBean(beanName, abd));
         } else if (abd.isPrototype()) {
             bean = createBean(beanName, abd);
+        } else if (abd.isPooled()) {
+            bean = this.beanPools.computeIfAbsent(beanName, name -> new BeanPool(name, this.poolMaxIdle))
+                    .borrow(() -> createBean(beanName, abd));
+        } else {
+            // 3. 自定义作用域
+            String scopeName = abd.getScope();
+            Scope scope = this.scopes.get(scopeName);
+            if (scope == null) {
+                throw new IllegalStateException("No Scope registered for scope name '" + scopeName + "'");
+            }
+            bean = scope.get(beanName, () -> createBean(beanName, abd));
         }
 
 
         return bean;
     }
 
+    @Override
+    public void releaseBean(String name, Object bean) {
+        BeanPool pool = this.beanPools.get(name);
+        if (pool != null) {
+            pool.release(bean);
+        }
+    }
+
+    /**
+     * 单例还在后台初始化时等待初始化完成
+     */
+    protected Object awaitInitialization(String beanName, Object bean) {
+        return bean;
+    }
+
+    /**
+     * 自定义作用域中的bean实现了DisposableBean时, 把它的销毁方法注册为作用域的销毁回调
+     */
+    protected void registerScopedDestructionCallback(String beanName, BeanDefinition bd, Object bean) {
+        Scope scope = this.scopes.get(bd.getScope());
+        if (scope != null && bean instanceof DisposableBean) {
+            scope.registerDestructionCallback(beanName, () -> destroyBean(bean, beanName));
+        }
+    }
+
+    /**
+     * 销毁单例后清空所有对象池并销毁各个自定义作用域, 池中空闲对象的销毁方法和作用域中的bean的销毁回调会被执行。
+     * 某个对象池或作用域销毁失败不影响其余的, 所有的失败与单例的销毁失败一起通过BeanDestructionException抛出
+     */
+    @Override
+    public void destroySingletons() {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            super.destroySingletons();
+        } catch (BeanDestructionException e) {
+            failures.putAll(e.getFailures());
+        }
+        for (BeanPool pool : this.beanPools.values()) {
+            try {
+                pool.clear();
+            } catch (RuntimeException | Error e) {
+                failures.put(pool.getBeanName(), e);
+            }
+        }
+        for (Map.Entry<String, Scope> entry : this.scopes.entrySet()) {
+            if (entry.getValue() instanceof DisposableBean) {
+                try {
+                    destroyBean(entry.getValue(), entry.getKey());
+                } catch (RuntimeException | Error e) {
+                    failures.put(entry.getKey(), e);
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new BeanDestructionException(failures);
+        }
+    }
+
+    /**
+     * 第一次使用时按类型解析目标bean的name并缓存; 目标是单例时同时缓存bean对象, 之后只要该单例仍在一级缓存中
+     * 就直接返回, 单例被销毁 (或重新创建) 后重新从bean工厂获取。
+     * 解析出单例时会记录注入了该provider的bean依赖这个单例, 保证销毁顺序
+     */
+    private class DependencyObjectProvider<T> implements ObjectProvider<T> {
+
+        private final Class<T> requiredType;
+
+        /**
+         * 注入了该provider的bean, 通过getBeanProvider直接获取的provider为null
+         */
+        private final String requestingBeanName;
+
+        private volatile String resolvedBeanName;
+
+        private volatile T resolvedSingleton;
+
+        DependencyObjectProvider(Class<T> requiredType, String requestingBeanName) {
+            this.requiredType = requiredType;
+            this.requestingBeanName = requestingBeanName;
+        }
+
+        @Override
+        public T getObject() {
+            T bean = getIfAvailable();
+            if (bean == null) {
+                throw new NoSuchBeanDefinitionException("no bean of type " + requiredType.getName() + " is defined");
+            }
+            return bean;
+        }
+
+        @Override
+        public T getIfAvailable() {
+            String beanName = this.resolvedBeanName;
+            T singleton = this.resolvedSingleton;
+            if (singleton != null && getSingleton(beanName, false) == singleton) {
+                return singleton;
+            }
+
+            if (beanName == null) {
+                List<String> beanNames = getBeanNamesForType(this.requiredType);
+                if (beanNames.isEmpty()) {
+                    return null;
+                }
+                if (beanNames.size() > 1) {
+                    throw new NoUniqueBeanDefinitionException(this.requiredType, beanNames);
+                }
+                beanName = beanNames.get(0);
+                this.resolvedBeanName = beanName;
+            }
+
+            T bean = adaptBeanInstance(beanName, doGetBean(beanName), this.requiredType);
+            if (getBeanDefinition(beanName).isSingleton()) {
+                if (this.requestingBeanName != null) {
+                    registerDependentBean(beanName, this.requestingBeanName);
+                }
+                this.resolvedSingleton = bean;
+            }
+            return bean;
+        }
+
+        @Override
+        public String toString() {
+            return "ObjectProvider<" + requiredType.getName() + ">";
+        }
+    }
+
     protected abstract boolean containsBeanDefinition(String beanName);
 
     /**
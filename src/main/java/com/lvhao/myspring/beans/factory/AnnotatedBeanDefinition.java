@@ -1,5 +1,10 @@
 package com.lvhao.myspring.beans.factory;
 
+import com.lvhao.myspring.exception.BeanCreationException;
+import com.lvhao.myspring.util.ClassUtils;
+
+import java.lang.reflect.Constructor;
+
 public class AnnotatedBeanDefinition implements BeanDefinition {
 
     /**
@@ -7,12 +12,47 @@ public class AnnotatedBeanDefinition implements BeanDefinition {
      */
     public static final String SCOPE_DEFAULT = BeanDefinition.SCOPE_SINGLETON;
 
-    private Class<?> beanClass;
+    /**
+     * 只设置了beanClassName时, 第一次调用getBeanClass才会加载类
+     */
+    private volatile Class<?> beanClass;
 
     private String beanClassName;
 
     private String scope = SCOPE_DEFAULT;
 
+    private boolean lazyInit = false;
+
+    /**
+     * 已绑定为MethodHandle的构造器, 由MethodHandleInstantiationStrategy维护
+     */
+    volatile MethodHandleInstantiationStrategy.ConstructorHandle boundConstructorHandle;
+
+    /**
+     * 需要处理该bean的BeanPostProcessor, 由AbstractAutowireCapableBeanFactory维护
+     */
+    volatile BeanPostProcessorChain postProcessorChain;
+
+    /**
+     * 构造器是否已经解析过 (最后写入, 保证其余两个字段对其他线程可见)
+     */
+    private volatile boolean constructorResolved;
+
+    /**
+     * 第一次创建时选中的构造器, 为null表示使用无参构造器
+     */
+    private Constructor<?> resolvedConstructor;
+
+    /**
+     * 选中构造器的每个参数所对应的bean name
+     */
+    private String[] resolvedConstructorArgumentNames;
+
+    /**
+     * 选中构造器的ObjectProvider参数的目标类型, 其余参数对应的元素为null; 没有ObjectProvider参数时为null
+     */
+    private Class<?>[] resolvedConstructorProviderTypes;
+
     public AnnotatedBeanDefinition() {
     }
 
@@ -25,7 +65,31 @@ public class AnnotatedBeanDefinition implements BeanDefinition {
     }
 
     public Class<?> getBeanClass() {
-        return beanClass;
+        Class<?> resolvedClass = this.beanClass;
+        if (resolvedClass == null && this.beanClassName != null) {
+            resolvedClass = resolveBeanClass(ClassUtils.getDefaultClassLoader());
+        }
+        return resolvedClass;
+    }
+
+    /**
+     * 根据beanClassName加载bean的Class对象。只加载不初始化, 类的静态初始化在第一次创建bean时才执行
+     */
+    public Class<?> resolveBeanClass(ClassLoader classLoader) {
+        try {
+            Class<?> resolvedClass = Class.forName(this.beanClassName, false, classLoader);
+            this.beanClass = resolvedClass;
+            return resolvedClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new BeanCreationException("Cannot load bean class: " + this.beanClassName, e);
+        }
+    }
+
+    /**
+     * 类是否已经加载
+     */
+    public boolean hasBeanClass() {
+        return this.beanClass != null;
     }
 
     public void setBeanClassName(String beanClassName) {
@@ -33,7 +97,7 @@ public class AnnotatedBeanDefinition implements BeanDefinition {
     }
 
     public String getBeanClassName() {
-        return beanClassName;
+        return (beanClassName != null || beanClass == null ? beanClassName : beanClass.getName());
     }
 
     public void setScope(String scope) {
@@ -44,6 +108,14 @@ public class AnnotatedBeanDefinition implements BeanDefinition {
         return scope;
     }
 
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
     public boolean isSingleton() {
         return scope.equals(BeanDefinition.SCOPE_SINGLETON);
     }
@@ -51,4 +123,49 @@ public class AnnotatedBeanDefinition implements BeanDefinition {
     public boolean isPrototype() {
         return scope.equalsIgnoreCase(BeanDefinition.SCOPE_PROTOTYPE);
     }
+
+    @Override
+    public boolean isPooled() {
+        return scope.equalsIgnoreCase(BeanDefinition.SCOPE_POOLED);
+    }
+
+    /**
+     * 记录构造器的解析结果, 之后的创建不再需要挑选构造器和解析参数
+     *
+     * @param constructor   选中的构造器, null表示使用无参构造器
+     * @param argumentNames 构造器每个参数对应的bean name
+     */
+    public void cacheResolvedConstructor(Constructor<?> constructor, String[] argumentNames) {
+        cacheResolvedConstructor(constructor, argumentNames, null);
+    }
+
+    /**
+     * 记录构造器的解析结果, 之后的创建不再需要挑选构造器和解析参数
+     *
+     * @param constructor   选中的构造器, null表示使用无参构造器
+     * @param argumentNames 构造器每个参数对应的bean name, ObjectProvider参数对应的元素为null
+     * @param providerTypes ObjectProvider参数的目标类型, 其余参数对应的元素为null
+     */
+    public void cacheResolvedConstructor(Constructor<?> constructor, String[] argumentNames, Class<?>[] providerTypes) {
+        this.resolvedConstructor = constructor;
+        this.resolvedConstructorArgumentNames = argumentNames;
+        this.resolvedConstructorProviderTypes = providerTypes;
+        this.constructorResolved = true;
+    }
+
+    public boolean isConstructorResolved() {
+        return constructorResolved;
+    }
+
+    public Constructor<?> getResolvedConstructor() {
+        return resolvedConstructor;
+    }
+
+    public String[] getResolvedConstructorArgumentNames() {
+        return resolvedConstructorArgumentNames;
+    }
+
+    public Class<?>[] getResolvedConstructorProviderTypes() {
+        return resolvedConstructorProviderTypes;
+    }
 }
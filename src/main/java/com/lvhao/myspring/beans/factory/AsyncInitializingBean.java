@@ -0,0 +1,14 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * 可以在后台线程中完成初始化的单例, 例如预热大型缓存。
+ * <p>
+ * 设置了异步初始化线程池时, afterPropertiesSetAsync在线程池中执行, 其他bean获取该bean时才会等待初始化完成,
+ * refresh在最后等待所有的异步初始化完成; 未设置线程池或者bean不是单例时在创建过程中同步执行。
+ * <p>
+ * 等待发生在获取该bean的线程中, 因此异步初始化的线程池必须独立于并行创建单例的线程池, 否则等待的线程可能占满线程池而死锁
+ */
+public interface AsyncInitializingBean {
+
+    void afterPropertiesSetAsync() throws Exception;
+}
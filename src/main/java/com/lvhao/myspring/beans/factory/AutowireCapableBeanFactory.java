@@ -3,7 +3,7 @@ package com.lvhao.myspring.beans.factory;
 /**
  * 具有自动装配功能的bean工厂
  */
-public interface AutowireCapableBeanFactory {
+public interface AutowireCapableBeanFactory extends BeanFactory {
     int AUTOWIRE_NO = 0;
 
     int AUTOWIRE_BY_NAME = 1;
@@ -12,4 +12,14 @@ public interface AutowireCapableBeanFactory {
 
     int AUTOWIRE_CONSTRUCTOR = 3;
 
+    /**
+     * 按类型解析requestingBeanName依赖的bean, 不存在满足条件的bean时返回null
+     */
+    Object resolveDependency(Class<?> type, String requestingBeanName);
+
+    /**
+     * 获取注入到requestingBeanName中的provider, provider解析出单例时会记录requestingBeanName依赖该单例
+     */
+    <T> ObjectProvider<T> getBeanProvider(Class<T> requiredType, String requestingBeanName);
+
 }
@@ -11,6 +11,11 @@ public interface BeanDefinition {
      */
     String SCOPE_PROTOTYPE = "prototype";
 
+    /**
+     * 池化的原型作用域: 对象从池中借出, 使用完毕通过BeanFactory#releaseBean归还
+     */
+    String SCOPE_POOLED = "pooled";
+
 
     /**
      * 设置bean的Class对象
@@ -42,6 +47,13 @@ public interface BeanDefinition {
      */
     String getScope();
 
+    /**
+     * 设置是否延迟初始化, 延迟初始化的单例不会在容器启动时创建
+     */
+    void setLazyInit(boolean lazyInit);
+
+    boolean isLazyInit();
+
     /**
      * 是单例作用域吗?
      */
@@ -52,4 +64,9 @@ public interface BeanDefinition {
      */
     boolean isPrototype();
 
+    /**
+     * 是池化作用域吗?
+     */
+    boolean isPooled();
+
 }
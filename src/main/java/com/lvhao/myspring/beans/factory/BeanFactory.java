@@ -1,5 +1,47 @@
 package com.lvhao.myspring.beans.factory;
 
+import java.util.List;
+import java.util.Map;
+
 public interface BeanFactory {
     Object getBean(String name);
+
+    /**
+     * 返回bean name对应的句柄, 同一个bean的句柄在容器的生命周期内不变。
+     * 在循环中反复获取同一个bean时, 可以先获取句柄再调用getBean(int)
+     */
+    int getBeanHandle(String name);
+
+    /**
+     * 通过句柄获取bean, 已经创建完成的单例直接从数组中返回, 不需要计算字符串的hash
+     */
+    Object getBean(int handle);
+
+    /**
+     * 获取类型为requiredType (或其子类型) 的唯一bean,
+     * 不存在时抛出NoSuchBeanDefinitionException, 存在多个时抛出NoUniqueBeanDefinitionException
+     */
+    <T> T getBean(Class<T> requiredType);
+
+    /**
+     * 获取所有类型为type (或其子类型) 的bean, key为bean name, 按注册顺序排列。
+     * 非单例的bean每次调用都会重新获取
+     */
+    <T> Map<String, T> getBeansOfType(Class<T> type);
+
+    /**
+     * 获取所有类型为type (或其子类型) 的bean name, 按注册顺序排列, 不会创建bean
+     */
+    List<String> getBeanNamesForType(Class<?> type);
+
+    /**
+     * 获取类型为requiredType的bean的provider, 目标bean在第一次使用provider时才会被解析和创建
+     */
+    <T> ObjectProvider<T> getBeanProvider(Class<T> requiredType);
+
+    /**
+     * 归还通过getBean获取的pooled作用域的bean, 其他作用域的bean不做任何处理。
+     * 重复归还或者归还不是从池中借出的对象时抛出IllegalStateException
+     */
+    void releaseBean(String name, Object bean);
 }
@@ -0,0 +1,193 @@
+package com.lvhao.myspring.beans.factory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * pooled作用域的bean的对象池。
+ * <p>
+ * 空闲对象保存在无锁的双端队列中, 后归还的先借出, 以便复用仍在CPU缓存中的对象。
+ * 池中最多保留maxIdle个空闲对象, 池为空时借出新创建的对象, 池满时归还的对象会被丢弃 (并调用其销毁方法)。
+ * 借出的对象按引用记录, 重复归还或者归还不是从该池借出的对象会抛出IllegalStateException。
+ * 统计信息使用LongAdder记录, 多线程频繁借还时不会在计数器上产生竞争
+ */
+public class BeanPool {
+
+    private final String beanName;
+
+    private final int maxIdle;
+
+    private final ConcurrentLinkedDeque<Object> idleBeans = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 空闲对象数量的上界, 归还时先占位再入队, 因此队列中的对象数量不会超过maxIdle
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * 当前借出的对象, 按引用比较 (bean可能重写了equals)
+     */
+    private final Set<IdentityKey> borrowedBeans = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder createCount = new LongAdder();
+
+    private final LongAdder returnCount = new LongAdder();
+
+    private final LongAdder discardCount = new LongAdder();
+
+    public BeanPool(String beanName, int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+        }
+        this.beanName = beanName;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * 借出一个对象, 池中没有空闲对象时通过objectFactory创建
+     */
+    public Object borrow(ObjectFactory<?> objectFactory) {
+        this.borrowCount.increment();
+        Object bean = this.idleBeans.pollFirst();
+        if (bean != null) {
+            this.idleCount.decrementAndGet();
+        } else {
+            this.createCount.increment();
+            bean = objectFactory.getObject();
+        }
+        this.borrowedBeans.add(new IdentityKey(bean));
+        return bean;
+    }
+
+    /**
+     * 归还一个对象, 先回调ResettableBean#reset, 重置失败或者池已满时丢弃该对象
+     *
+     * @throws IllegalStateException 该对象当前没有从池中借出 (重复归还或者不是该池的对象)
+     */
+    public void release(Object bean) {
+        if (bean == null || !this.borrowedBeans.remove(new IdentityKey(bean))) {
+            throw new IllegalStateException("Bean is not currently borrowed from pool '" + this.beanName + "': " + bean);
+        }
+        this.returnCount.increment();
+        if (bean instanceof ResettableBean) {
+            try {
+                ((ResettableBean) bean).reset();
+            } catch (Exception e) {
+                discard(bean);
+                return;
+            }
+        }
+        if (this.idleCount.incrementAndGet() > this.maxIdle) {
+            this.idleCount.decrementAndGet();
+            discard(bean);
+            return;
+        }
+        this.idleBeans.offerFirst(bean);
+    }
+
+    /**
+     * 丢弃所有空闲对象, 容器关闭时调用
+     */
+    public void clear() {
+        Object bean;
+        while ((bean = this.idleBeans.pollFirst()) != null) {
+            this.idleCount.decrementAndGet();
+            discard(bean);
+        }
+    }
+
+    private void discard(Object bean) {
+        this.discardCount.increment();
+        if (bean instanceof DisposableBean) {
+            try {
+                ((DisposableBean) bean).destroy();
+            } catch (Exception e) {
+                // 被丢弃的对象销毁失败不影响归还方
+            }
+        }
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * 当前借出且还没有归还的对象数量
+     */
+    public int getActiveCount() {
+        return this.borrowedBeans.size();
+    }
+
+    /**
+     * 当前空闲的对象数量
+     */
+    public int getIdleCount() {
+        return this.idleBeans.size();
+    }
+
+    /**
+     * 借出的总次数
+     */
+    public long getBorrowCount() {
+        return this.borrowCount.sum();
+    }
+
+    /**
+     * 因池中没有空闲对象而新建的对象总数
+     */
+    public long getCreateCount() {
+        return this.createCount.sum();
+    }
+
+    /**
+     * 归还的总次数
+     */
+    public long getReturnCount() {
+        return this.returnCount.sum();
+    }
+
+    /**
+     * 因重置失败、池已满或容器关闭而丢弃的对象总数
+     */
+    public long getDiscardCount() {
+        return this.discardCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BeanPool[" + beanName + "]: idle=" + getIdleCount() + ", active=" + getActiveCount()
+                + ", borrowed=" + getBorrowCount() + ", created=" + getCreateCount() + ", returned=" + getReturnCount()
+                + ", discarded=" + getDiscardCount();
+    }
+
+    /**
+     * 按引用比较的key
+     */
+    private static final class IdentityKey {
+
+        private final Object bean;
+
+        IdentityKey(Object bean) {
+            this.bean = bean;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (this == other || (other instanceof IdentityKey && this.bean == ((IdentityKey) other).bean));
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.bean);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * bean创建过程的扩展点, 在初始化方法 (afterPropertiesSet等) 前后对bean进行处理, 可以返回包装后的对象。
+ * <p>
+ * 每个bean definition只在第一次创建bean时通过requiresPostProcessing判断一次哪些处理器需要参与,
+ * 没有处理器参与的bean在创建时不会调用任何处理器
+ */
+public interface BeanPostProcessor {
+
+    /**
+     * 该处理器是否需要处理beanName对应的bean, 每个bean definition只调用一次, 结果会被缓存
+     */
+    default boolean requiresPostProcessing(Class<?> beanClass, String beanName) {
+        return true;
+    }
+
+    /**
+     * 属性填充之后、初始化方法之前调用, 返回的对象替代原来的bean
+     */
+    default Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    /**
+     * 初始化方法之后调用, 返回的对象替代原来的bean, 例如代理
+     */
+    default Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lvhao.myspring.beans.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 某个bean definition需要经过的BeanPostProcessor, 按注册顺序排列。
+ * <p>
+ * 由bean工厂在第一次创建该bean时计算并缓存到bean definition中; 工厂注册了新的处理器后,
+ * 缓存的处理链对应的processors不再是工厂当前的处理器数组, 下次创建时重新计算
+ */
+final class BeanPostProcessorChain {
+
+    /**
+     * 计算该处理链时工厂的全部处理器
+     */
+    final BeanPostProcessor[] processors;
+
+    private final BeanPostProcessor[] applicableProcessors;
+
+    private final InstantiationAwareBeanPostProcessor[] instantiationAwareProcessors;
+
+    private BeanPostProcessorChain(BeanPostProcessor[] processors, BeanPostProcessor[] applicableProcessors,
+                                   InstantiationAwareBeanPostProcessor[] instantiationAwareProcessors) {
+        this.processors = processors;
+        this.applicableProcessors = applicableProcessors;
+        this.instantiationAwareProcessors = instantiationAwareProcessors;
+    }
+
+    /**
+     * 询问每个处理器是否需要处理该bean
+     */
+    static BeanPostProcessorChain build(BeanPostProcessor[] processors, Class<?> beanClass, String beanName) {
+        List<BeanPostProcessor> applicable = new ArrayList<>(processors.length);
+        List<InstantiationAwareBeanPostProcessor> instantiationAware = new ArrayList<>(processors.length);
+        for (BeanPostProcessor processor : processors) {
+            if (processor.requiresPostProcessing(beanClass, beanName)) {
+                applicable.add(processor);
+                if (processor instanceof InstantiationAwareBeanPostProcessor) {
+                    instantiationAware.add((InstantiationAwareBeanPostProcessor) processor);
+                }
+            }
+        }
+        return new BeanPostProcessorChain(processors, applicable.toArray(new BeanPostProcessor[0]),
+                instantiationAware.toArray(new InstantiationAwareBeanPostProcessor[0]));
+    }
+
+    /**
+     * 没有任何处理器需要处理该bean
+     */
+    boolean isEmpty() {
+        return this.applicableProcessors.length == 0;
+    }
+
+    boolean hasInstantiationAwareProcessors() {
+        return this.instantiationAwareProcessors.length > 0;
+    }
+
+    /**
+     * 第一个返回非null的处理器的结果作为bean, 不再实例化
+     */
+    Object applyBeforeInstantiation(Class<?> beanClass, String beanName) {
+        for (InstantiationAwareBeanPostProcessor processor : this.instantiationAwareProcessors) {
+            Object bean = processor.postProcessBeforeInstantiation(beanClass, beanName);
+            if (bean != null) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回false表示跳过属性填充
+     */
+    boolean applyAfterInstantiation(Object bean, String beanName) {
+        for (InstantiationAwareBeanPostProcessor processor : this.instantiationAwareProcessors) {
+            if (!processor.postProcessAfterInstantiation(bean, beanName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 处理器返回null时保留上一个结果
+     */
+    Object applyBeforeInitialization(Object bean, String beanName) {
+        Object result = bean;
+        for (BeanPostProcessor processor : this.applicableProcessors) {
+            Object current = processor.postProcessBeforeInitialization(result, beanName);
+            if (current == null) {
+                return result;
+            }
+            result = current;
+        }
+        return result;
+    }
+
+    Object applyAfterInitialization(Object bean, String beanName) {
+        Object result = bean;
+        for (BeanPostProcessor processor : this.applicableProcessors) {
+            Object current = processor.postProcessAfterInitialization(result, beanName);
+            if (current == null) {
+                return result;
+            }
+            result = current;
+        }
+        return result;
+    }
+}
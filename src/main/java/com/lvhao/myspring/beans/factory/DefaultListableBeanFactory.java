@@ -1,12 +1,27 @@
 package com.lvhao.myspring.beans.factory;
 
+import com.lvhao.myspring.exception.BeanCreationException;
 import com.lvhao.myspring.exception.NoSuchBeanDefinitionException;
+import com.lvhao.myspring.util.ClassUtils;
 
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFactory
         implements BeanDefinitionRegistry {
@@ -15,15 +30,165 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
     private final List<String> beanDefinitionNames = new ArrayList<>(256);
 
+    /**
+     * 类型 (bean class及其所有父类和接口, 不包括Object) -> bean name的索引。
+     * 只在持有beanDefinitionMap的锁时读写, 索引中的list可变, 建立索引时直接追加
+     */
+    private final Map<Class<?>, List<String>> beanNamesByType = new HashMap<>(256);
+
+    /**
+     * 已经注册但还没有加入类型索引的bean name。注册时不加载bean class, 第一次按类型查找时才建立索引
+     */
+    private final Set<String> unindexedBeanNames = new LinkedHashSet<>();
+
+    /**
+     * 类型 -> 索引中该类型的不可变副本, 读取不需要加锁; 注册bean definition时清空, 查找时按类型重新复制
+     */
+    private final Map<Class<?>, List<String>> beanNamesByTypeView = new ConcurrentHashMap<>(256);
+
+    /**
+     * bean name -> 句柄, 句柄即bean name在beanDefinitionNames中的位置
+     */
+    private final Map<String, Integer> beanHandles = new ConcurrentHashMap<>(256);
+
+    /**
+     * 句柄 -> 已经创建完成的单例, 未创建或非单例的位置为null。数组只在加锁时扩容或替换
+     */
+    private volatile AtomicReferenceArray<Object> singletonsByHandle = new AtomicReferenceArray<>(0);
+
+    /**
+     * 并行创建单例使用的线程池, 为null时按注册顺序依次创建单例
+     */
+    private Executor preInstantiationExecutor;
+
+    /**
+     * freezeConfiguration之后的只读registry, 为null表示还可以注册bean definition
+     */
+    private volatile FrozenConfiguration frozenConfiguration;
+
+    /**
+     * 正在进行的单例销毁的数量, 只在持有beanDefinitionMap的锁时访问。
+     * 销毁期间冻结的单例可能即将被销毁, 此时不能把它们放入冻结的视图
+     */
+    private int singletonDestructionsInProgress;
+
+    /**
+     * 每次单例销毁结束时加一, 只在持有beanDefinitionMap的锁时修改。
+     * 按句柄获取时在获取bean之前读取, 缓存时不一致说明期间有单例被销毁, 获取到的bean可能已经被销毁
+     */
+    private volatile int singletonDestructionEpoch;
+
+    /**
+     * 设置线程池后, 容器启动时会根据单例之间的依赖关系并行创建互不依赖的单例。
+     * 不能与异步初始化使用同一个线程池, 否则refresh时抛出IllegalStateException
+     */
+    public void setPreInstantiationExecutor(Executor preInstantiationExecutor) {
+        this.preInstantiationExecutor = preInstantiationExecutor;
+    }
+
+    public Executor getPreInstantiationExecutor() {
+        return preInstantiationExecutor;
+    }
+
     @Override
     public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) {
-        this.beanDefinitionNames.add(beanName);
-        this.beanDefinitionMap.put(beanName, beanDefinition);
+        synchronized (this.beanDefinitionMap) {
+            if (this.frozenConfiguration != null) {
+                throw new IllegalStateException("Cannot register bean definition '" + beanName
+                        + "': configuration has been frozen");
+            }
+            BeanDefinition existingDefinition = this.beanDefinitionMap.put(beanName, beanDefinition);
+            if (existingDefinition == null) {
+                this.beanHandles.put(beanName, this.beanDefinitionNames.size());
+                this.beanDefinitionNames.add(beanName);
+            } else if (!this.unindexedBeanNames.remove(beanName)) {
+                // 覆盖已经加入索引的bean definition, 先把旧的类型从索引中去掉
+                removeFromTypeIndex(beanName, existingDefinition.getBeanClass());
+            }
+            this.unindexedBeanNames.add(beanName);
+            this.beanNamesByTypeView.clear();
+        }
+    }
+
+    /**
+     * 把还没有加入索引的bean definition加入类型索引, 需要持有beanDefinitionMap的锁
+     */
+    private void indexBeanDefinitions() {
+        Iterator<String> it = this.unindexedBeanNames.iterator();
+        while (it.hasNext()) {
+            String beanName = it.next();
+            addToTypeIndex(beanName, this.beanDefinitionMap.get(beanName).getBeanClass());
+            it.remove();
+        }
+    }
+
+    private void addToTypeIndex(String beanName, Class<?> beanClass) {
+        for (Class<?> type : getAllAssignableTypes(beanClass)) {
+            this.beanNamesByType.computeIfAbsent(type, k -> new ArrayList<>(1)).add(beanName);
+        }
+    }
+
+    private void removeFromTypeIndex(String beanName, Class<?> beanClass) {
+        for (Class<?> type : getAllAssignableTypes(beanClass)) {
+            List<String> names = this.beanNamesByType.get(type);
+            if (names != null) {
+                names.remove(beanName);
+                if (names.isEmpty()) {
+                    this.beanNamesByType.remove(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回beanClass可以赋值给的所有类型: 自身、所有父类(不包括Object)以及所有接口
+     */
+    private static Set<Class<?>> getAllAssignableTypes(Class<?> beanClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> clazz = beanClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            types.add(clazz);
+        }
+        types.addAll(ClassUtils.getAllInterfaces(beanClass));
+        return types;
+    }
+
+    /**
+     * 从索引中获取类型为type的bean name
+     */
+    protected List<String> getBeanNamesForTypeIndex(Class<?> type) {
+        if (type == Object.class) {
+            return getBeanDefinitionNames();
+        }
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        if (frozen != null) {
+            List<String> names = frozen.beanNamesByType.get(type);
+            return (names != null ? names : Collections.emptyList());
+        }
+
+        List<String> names = this.beanNamesByTypeView.get(type);
+        if (names == null) {
+            synchronized (this.beanDefinitionMap) {
+                indexBeanDefinitions();
+                List<String> indexed = this.beanNamesByType.get(type);
+                names = (indexed != null ? Collections.unmodifiableList(new ArrayList<>(indexed)) : Collections.emptyList());
+                this.beanNamesByTypeView.put(type, names);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 直接返回类型索引的不可变副本: 两次注册之间同一类型只复制一次, 之后按类型查找只需要一次map查询
+     */
+    @Override
+    public List<String> getBeanNamesForType(Class<?> type) {
+        return getBeanNamesForTypeIndex(type);
     }
 
     @Override
     public BeanDefinition getBeanDefinition(String beanName) {
-        BeanDefinition bd = this.beanDefinitionMap.get(beanName);
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        BeanDefinition bd = (frozen != null ? frozen.beanDefinitionMap : this.beanDefinitionMap).get(beanName);
         if (bd == null) {
             throw new NoSuchBeanDefinitionException("bean definition of " + beanName
                     + " does not exist");
@@ -33,12 +198,182 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
     @Override
     public boolean containsBeanDefinition(String beanName) {
-        return this.beanDefinitionMap.containsKey(beanName);
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        return (frozen != null ? frozen.beanDefinitionMap : this.beanDefinitionMap).containsKey(beanName);
     }
 
+    /**
+     * 冻结之前返回副本; 冻结之后直接返回不可变的列表, 不再复制
+     */
     @Override
     public List<String> getBeanDefinitionNames() {
-        return new ArrayList<>(this.beanDefinitionNames);
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        if (frozen != null) {
+            return frozen.beanDefinitionNames;
+        }
+        synchronized (this.beanDefinitionMap) {
+            return new ArrayList<>(this.beanDefinitionNames);
+        }
+    }
+
+    /**
+     * 冻结registry: 将bean definition、类型索引和已经创建的单例复制到只读的结构中,
+     * 之后的查找不再经过ConcurrentHashMap和单例的三级缓存, 也不会再复制bean name列表。
+     * 冻结之后不能再注册bean definition
+     */
+    public void freezeConfiguration() {
+        synchronized (this.beanDefinitionMap) {
+            if (this.frozenConfiguration != null) {
+                return;
+            }
+            List<String> beanNames = Collections.unmodifiableList(new ArrayList<>(this.beanDefinitionNames));
+            Map<String, Object> singletons = new HashMap<>(beanNames.size() * 2);
+            if (this.singletonDestructionsInProgress == 0) {
+                for (String beanName : beanNames) {
+                    if (containsSingleton(beanName)) {
+                        singletons.put(beanName, getSingleton(beanName, false));
+                    }
+                }
+            }
+            indexBeanDefinitions();
+            Map<Class<?>, List<String>> beanNamesByType = new HashMap<>(this.beanNamesByType.size() * 2);
+            for (Map.Entry<Class<?>, List<String>> entry : this.beanNamesByType.entrySet()) {
+                beanNamesByType.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            }
+            this.frozenConfiguration = new FrozenConfiguration(beanNames, new HashMap<>(this.beanDefinitionMap),
+                    beanNamesByType, singletons);
+
+            AtomicReferenceArray<Object> singletonsByHandle = new AtomicReferenceArray<>(beanNames.size());
+            for (int handle = 0; handle < beanNames.size(); handle++) {
+                singletonsByHandle.set(handle, singletons.get(beanNames.get(handle)));
+            }
+            this.singletonsByHandle = singletonsByHandle;
+        }
+    }
+
+    @Override
+    public int getBeanHandle(String name) {
+        Integer handle = this.beanHandles.get(name);
+        if (handle == null) {
+            throw new NoSuchBeanDefinitionException("bean definition of " + name + " does not exist");
+        }
+        return handle;
+    }
+
+    /**
+     * 数组中没有该单例时 (延迟初始化的单例第一次获取, 或者非单例的bean) 回到按名称获取,
+     * 获取到完成创建的单例后放入数组
+     */
+    @Override
+    public Object getBean(int handle) {
+        AtomicReferenceArray<Object> singletons = this.singletonsByHandle;
+        if (handle >= 0 && handle < singletons.length()) {
+            Object singleton = singletons.get(handle);
+            if (singleton != null) {
+                return singleton;
+            }
+        }
+
+        String beanName = getBeanNameForHandle(handle);
+        int epoch = this.singletonDestructionEpoch;
+        Object bean = doGetBean(beanName);
+        if (getBeanDefinition(beanName).isSingleton() && containsSingleton(beanName)) {
+            cacheSingletonForHandle(handle, bean, epoch);
+        }
+        return bean;
+    }
+
+    private String getBeanNameForHandle(int handle) {
+        List<String> beanNames = getBeanDefinitionNames();
+        if (handle < 0 || handle >= beanNames.size()) {
+            throw new NoSuchBeanDefinitionException("no bean definition for handle " + handle);
+        }
+        return beanNames.get(handle);
+    }
+
+    /**
+     * 销毁正在进行或者获取之后有单例被销毁时不缓存, 避免数组中留下已经销毁的单例
+     */
+    private void cacheSingletonForHandle(int handle, Object singleton, int epoch) {
+        synchronized (this.beanDefinitionMap) {
+            if (this.singletonDestructionsInProgress > 0 || this.singletonDestructionEpoch != epoch) {
+                return;
+            }
+            AtomicReferenceArray<Object> singletons = this.singletonsByHandle;
+            if (handle >= singletons.length()) {
+                AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(this.beanDefinitionNames.size());
+                for (int i = 0; i < singletons.length(); i++) {
+                    grown.set(i, singletons.get(i));
+                }
+                this.singletonsByHandle = grown;
+                singletons = grown;
+            }
+            singletons.set(handle, singleton);
+        }
+    }
+
+    public boolean isConfigurationFrozen() {
+        return this.frozenConfiguration != null;
+    }
+
+    /**
+     * 冻结之后先查询冻结时已经创建好的单例, 命中时只需要一次HashMap查询
+     */
+    @Override
+    protected Object doGetBean(String beanName) {
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        if (frozen != null) {
+            Object singleton = frozen.singletonObjects.get(beanName);
+            if (singleton != null) {
+                return singleton;
+            }
+        }
+        return super.doGetBean(beanName);
+    }
+
+    /**
+     * 销毁单例之前先丢弃冻结的单例, 之后的获取回到三级缓存, 不会再从冻结的视图拿到正在销毁或已经销毁的单例
+     */
+    @Override
+    public void destroySingleton(String beanName) {
+        discardFrozenSingletons();
+        try {
+            super.destroySingleton(beanName);
+        } finally {
+            endSingletonDestruction();
+        }
+    }
+
+    @Override
+    public void destroySingletons() {
+        discardFrozenSingletons();
+        try {
+            super.destroySingletons();
+        } finally {
+            endSingletonDestruction();
+        }
+    }
+
+    /**
+     * 标记销毁开始并丢弃冻结的单例, 必须与endSingletonDestruction成对调用
+     */
+    private void discardFrozenSingletons() {
+        synchronized (this.beanDefinitionMap) {
+            this.singletonDestructionsInProgress++;
+            this.singletonsByHandle = new AtomicReferenceArray<>(0);
+            FrozenConfiguration frozen = this.frozenConfiguration;
+            if (frozen != null && !frozen.singletonObjects.isEmpty()) {
+                this.frozenConfiguration = new FrozenConfiguration(frozen.beanDefinitionNames,
+                        frozen.beanDefinitionMap, frozen.beanNamesByType, Collections.emptyMap());
+            }
+        }
+    }
+
+    private void endSingletonDestruction() {
+        synchronized (this.beanDefinitionMap) {
+            this.singletonDestructionEpoch++;
+            this.singletonDestructionsInProgress--;
+        }
     }
 
 
@@ -51,29 +386,239 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
         Map<String, Object> candidate = new HashMap<>();
 
         // TODO: 下面仅仅考虑了单例的情况
-        for (String beanDefinitionName : this.beanDefinitionNames) {
+        for (String beanDefinitionName : getBeanNamesForTypeIndex(type)) {
             BeanDefinition bd = this.beanDefinitionMap.get(beanDefinitionName);
             Class<?> beanClass = bd.getBeanClass();
-            boolean compatible = type.isAssignableFrom(beanClass);
-            if (compatible) {
-                Object val = containsSingleton(beanDefinitionName) ? getSingleton(beanDefinitionName) : beanClass;
-                candidate.put(beanDefinitionName, val);
-            }
+            Object val = containsSingleton(beanDefinitionName) ?
+                    awaitInitialization(beanDefinitionName, getSingleton(beanDefinitionName)) : beanClass;
+            candidate.put(beanDefinitionName, val);
         }
         return candidate;
     }
 
+    /**
+     * 只有一个候选bean时 (最常见的情况) 直接通过类型索引获取, 不再构造候选map
+     */
+    @Override
+    public Object resolveDependency(Class<?> type, String requestingBeanName) {
+        List<String> candidateNames = getBeanNamesForTypeIndex(type);
+        if (candidateNames.size() != 1) {
+            return super.resolveDependency(type, requestingBeanName);
+        }
+        String candidateName = candidateNames.get(0);
+        Object value = adaptBeanInstance(candidateName, getBean(candidateName), type);
+        if (isSingletonCurrentlyInCreation(requestingBeanName)) {
+            registerDependentBean(candidateName, requestingBeanName);
+        }
+        return value;
+    }
+
     /**
      * 容器启动时, 对单例对象进行创建和初始化
      */
     public void preInstantiateSingletons() {
-        List<String> beanNames = new ArrayList<>(beanDefinitionNames);
+        List<String> beanNames = getBeanDefinitionNames();
+
+        if (this.preInstantiationExecutor != null) {
+            // 依赖异步初始化的单例的bean会在创建线程中等待初始化完成, 两者共用一个有界线程池时,
+            // 等待的线程可能占满线程池, 使排队的异步初始化永远无法执行
+            if (this.preInstantiationExecutor == getAsyncInitializationExecutor()) {
+                throw new IllegalStateException("preInstantiationExecutor and asyncInitializationExecutor must be different executors");
+            }
+            preInstantiateSingletonsInParallel(beanNames, this.preInstantiationExecutor);
+            return;
+        }
+
+        for (String beanName : beanNames) {
+            BeanDefinition beanDefinition = getBeanDefinition(beanName);
+            if (beanDefinition.isSingleton() && !beanDefinition.isLazyInit()) {
+                preInstantiateSingleton(beanName);
+            }
+        }
+    }
+
+    /**
+     * 启动时创建单例不等待其异步初始化完成, refresh在最后统一等待
+     */
+    private void preInstantiateSingleton(String beanName) {
+        getBeanInstance(beanName);
+    }
+
+    /**
+     * 根据构造器和@Autowired方法的参数建立单例之间的依赖图, 按拓扑序将单例提交到线程池:
+     * 一个单例在其依赖的所有单例创建完成后才开始创建, 互不依赖的单例并行创建。
+     * 存在循环依赖的单例(以及依赖它们的单例)在最后退回到按注册顺序依次创建。
+     * <p>
+     * 并行的前提是DefaultSingletonBeanRegistry#getSingleton在创建时只持有该单例自己的锁;
+     * 如果单例的创建仍在全局锁下进行, 提交到线程池的任务会被串行执行
+     */
+    private void preInstantiateSingletonsInParallel(List<String> beanNames, Executor executor) {
+        // 1. 计算每个单例依赖的单例
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        for (String beanName : beanNames) {
+            BeanDefinition beanDefinition = getBeanDefinition(beanName);
+            if (beanDefinition.isSingleton() && !beanDefinition.isLazyInit()) {
+                dependencies.put(beanName, collectSingletonDependencies(beanName));
+            }
+        }
 
+        // 2. 拓扑排序, 环上的单例不会出现在结果中
+        List<String> sortedBeanNames = sortByDependencies(dependencies);
+
+        // 3. 按拓扑序提交, 每个单例等待其依赖完成后再创建
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (String beanName : sortedBeanNames) {
+            Set<String> dependsOn = dependencies.get(beanName);
+            CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependsOn.size()];
+            int i = 0;
+            for (String dependency : dependsOn) {
+                dependencyFutures[i++] = futures.get(dependency);
+            }
+            futures.put(beanName, CompletableFuture.allOf(dependencyFutures)
+                    .thenRunAsync(() -> preInstantiateSingleton(beanName), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new BeanCreationException("Error in pre-instantiating singletons", cause);
+        }
+
+        // 4. 存在循环依赖的单例退回到顺序创建
+        for (String beanName : dependencies.keySet()) {
+            if (!futures.containsKey(beanName)) {
+                preInstantiateSingleton(beanName);
+            }
+        }
+    }
+
+    /**
+     * 返回所有bean name: 需要在启动时创建的单例排在最前, 且每个单例都排在其依赖之后;
+     * 存在循环依赖的单例和其余bean按注册顺序排在后面
+     */
+    public List<String> getBeanNamesInDependencyOrder() {
+        List<String> beanNames = getBeanDefinitionNames();
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
         for (String beanName : beanNames) {
             BeanDefinition beanDefinition = getBeanDefinition(beanName);
-            if (beanDefinition.isSingleton()) {
-                getBean(beanName);
+            if (beanDefinition.isSingleton() && !beanDefinition.isLazyInit()) {
+                dependencies.put(beanName, collectSingletonDependencies(beanName));
             }
         }
+
+        Set<String> ordered = new LinkedHashSet<>(sortByDependencies(dependencies));
+        ordered.addAll(beanNames);
+        return new ArrayList<>(ordered);
+    }
+
+    /**
+     * Kahn算法: 返回的列表中每个bean都排在其依赖之后, 处于环上或依赖环的bean不会被返回
+     */
+    private List<String> sortByDependencies(Map<String, Set<String>> dependencies) {
+        Map<String, Integer> unresolvedCount = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            unresolvedCount.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        List<String> sorted = new ArrayList<>(dependencies.size());
+        while (!ready.isEmpty()) {
+            String beanName = ready.poll();
+            sorted.add(beanName);
+            for (String dependent : dependents.getOrDefault(beanName, Collections.emptyList())) {
+                int count = unresolvedCount.merge(dependent, -1, Integer::sum);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * 返回beanName依赖的所有需要在启动时创建的单例; 依赖非单例或延迟初始化的bean时, 继续沿着该bean的依赖寻找
+     */
+    private Set<String> collectSingletonDependencies(String beanName) {
+        Set<String> singletonDependencies = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        visited.add(beanName);
+
+        Deque<String> toVisit = new ArrayDeque<>(getDirectDependencies(beanName));
+        while (!toVisit.isEmpty()) {
+            String dependency = toVisit.pop();
+            if (!visited.add(dependency)) {
+                continue;
+            }
+            BeanDefinition dependencyDefinition = getBeanDefinition(dependency);
+            if (dependencyDefinition.isSingleton() && !dependencyDefinition.isLazyInit()) {
+                singletonDependencies.add(dependency);
+            } else {
+                toVisit.addAll(getDirectDependencies(dependency));
+            }
+        }
+        return singletonDependencies;
+    }
+
+    /**
+     * 由构造器参数和@Autowired方法参数推断出的直接依赖 (可能多于实际注入的bean)
+     */
+    private Set<String> getDirectDependencies(String beanName) {
+        BeanDefinition bd = getBeanDefinition(beanName);
+        Class<?> beanClass = bd.getBeanClass();
+        Set<String> dependencies = new LinkedHashSet<>();
+
+        Constructor<?>[] ctors = determineConstructors(beanClass, beanName);
+        if (ctors != null) {
+            for (Constructor<?> ctor : ctors) {
+                for (Class<?> parameterType : ctor.getParameterTypes()) {
+                    dependencies.addAll(getBeanNamesForTypeIndex(parameterType));
+                }
+            }
+        }
+
+        for (InjectionMetadata.InjectedElement element : findAutowiringMetadata(beanClass).getInjectedElements()) {
+            for (Class<?> dependencyType : element.getDependencyTypes()) {
+                dependencies.addAll(getBeanNamesForTypeIndex(dependencyType));
+            }
+        }
+
+        dependencies.remove(beanName);
+        return dependencies;
+    }
+
+    /**
+     * 冻结后的registry, 创建之后不再修改, 通过volatile字段发布后可以无锁读取
+     */
+    private static final class FrozenConfiguration {
+
+        private final List<String> beanDefinitionNames;
+
+        private final Map<String, BeanDefinition> beanDefinitionMap;
+
+        private final Map<Class<?>, List<String>> beanNamesByType;
+
+        /**
+         * 冻结时已经创建完成的单例
+         */
+        private final Map<String, Object> singletonObjects;
+
+        FrozenConfiguration(List<String> beanDefinitionNames, Map<String, BeanDefinition> beanDefinitionMap,
+                            Map<Class<?>, List<String>> beanNamesByType, Map<String, Object> singletonObjects) {
+            this.beanDefinitionNames = beanDefinitionNames;
+            this.beanDefinitionMap = beanDefinitionMap;
+            this.beanNamesByType = beanNamesByType;
+            this.singletonObjects = singletonObjects;
+        }
     }
 }
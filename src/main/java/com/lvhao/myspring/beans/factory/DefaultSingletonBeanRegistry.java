@@ -1,18 +1,44 @@
 package com.lvhao.myspring.beans.factory;
 
+import com.lvhao.myspring.exception.BeanCreationException;
 import com.lvhao.myspring.exception.BeanCurrentlyInCreationException;
+import com.lvhao.myspring.exception.BeanDestructionException;
 import com.lvhao.myspring.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 
     /**
-     * 当前正在创建中的单例对象
+     * 当前正在创建中的单例对象 -> 创建它的线程
      */
-    private final Set<String> singletonsCurrentlyInCreation =
-            Collections.newSetFromMap(new ConcurrentHashMap<>(16));
+    private final Map<String, Thread> singletonsCurrentlyInCreation = new ConcurrentHashMap<>(16);
+
+    /**
+     * 保护singletonLockOwners和singletonLockWaits, 只在获取和释放单例锁时短暂持有, 创建单例时不持有
+     */
+    private final Object singletonLockMonitor = new Object();
+
+    /**
+     * 每个单例各自的创建锁: bean name -> 持有该锁的线程, 释放锁时移除, 创建不同单例的线程互不阻塞
+     */
+    private final Map<String, Thread> singletonLockOwners = new HashMap<>(64);
+
+    /**
+     * 线程 -> 该线程正在等待的单例锁 (用于检测线程之间的循环等待)
+     */
+    private final Map<Thread, String> singletonLockWaits = new HashMap<>(16);
 
     /**
      * 一级缓存，存放完备的bean对象
@@ -22,17 +48,51 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
     /**
      * 二级缓存，存放提前暴露出来的bean对象
      */
-    private final Map<String, Object> earlySingletonObjects = new HashMap<>();
+    private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<>(16);
 
     /**
      * 三级缓存，存放暴露非完备bean对象的ObjectFactory
      */
-    private final Map<String, ObjectFactory<?>> singletonObjectFactories = new HashMap<>();
+    private final Map<String, ObjectFactory<?>> singletonObjectFactories = new ConcurrentHashMap<>(16);
+
+    /**
+     * 存放实现了DisposableBean接口的bean, 按注册顺序排列
+     */
+    protected final Map<String, Object> disposableBeans = new LinkedHashMap<>();
+
+    /**
+     * bean name -> 注入了该bean的bean name
+     */
+    private final Map<String, Set<String>> dependentBeanMap = new ConcurrentHashMap<>(64);
+
+    /**
+     * 并行销毁单例使用的线程池, 为null时在调用线程中依次销毁
+     */
+    private Executor destructionExecutor;
+
+    /**
+     * 并行销毁时每个bean的destroy方法的超时时间, 0表示不限制
+     */
+    private long destructionTimeoutNanos;
 
     /**
-     * 存放实现了DisposableBean接口的bean
+     * 设置线程池后, 互不依赖的单例会并行销毁
      */
-    protected final Map<String, Object> disposableBeans = new HashMap<>();
+    public void setDestructionExecutor(Executor destructionExecutor) {
+        this.destructionExecutor = destructionExecutor;
+    }
+
+    public Executor getDestructionExecutor() {
+        return destructionExecutor;
+    }
+
+    /**
+     * 设置每个bean的destroy方法的超时时间, 只在设置了销毁线程池时生效。
+     * 超时时间从destroy方法开始执行时计算, 超时的bean被记为销毁失败, 依赖的bean不再等待它, 继续销毁
+     */
+    public void setDestructionTimeout(long timeout, TimeUnit unit) {
+        this.destructionTimeoutNanos = unit.toNanos(timeout);
+    }
 
 
     @Override
@@ -50,17 +110,11 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
      */
     public Object getSingleton(String beanName, boolean allowEarlyReference) {
         Object singletonObject = this.singletonObjects.get(beanName);
-        if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
-            synchronized (this.singletonObjects) {
-                singletonObject = this.earlySingletonObjects.get(beanName);
-                if (singletonObject == null && allowEarlyReference) {
-                    ObjectFactory<?> singletonFactory = singletonObjectFactories.get(beanName);
-                    if (singletonFactory != null) {
-                        singletonObject = singletonFactory.getObject();
-                        this.earlySingletonObjects.put(beanName, singletonObject);
-                        this.singletonObjectFactories.remove(beanName);
-                    }
-                }
+        // 只有正在创建该单例的线程才能拿到提前暴露的引用, 其他线程需要等待创建完成
+        if (singletonObject == null && this.singletonsCurrentlyInCreation.get(beanName) == Thread.currentThread()) {
+            singletonObject = this.earlySingletonObjects.get(beanName);
+            if (singletonObject == null && allowEarlyReference) {
+                singletonObject = promoteSingletonFactory(beanName);
             }
         }
 
@@ -68,66 +122,436 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
     }
 
     /**
-     * 创建单例对象: 核心逻辑在调用singletonFactory参数的getObject方法
+     * 调用三级缓存中的ObjectFactory获取提前暴露的引用并放入二级缓存。
+     * 这是读取路径上唯一需要原子执行的操作: 同一个ObjectFactory只会被调用一次。
+     * <p>
+     * 提升之后再检查一次一级缓存: 单例可能在提升的同时完成了创建 (addSingleton已经移除了ObjectFactory,
+     * 或者在提升写入二级缓存之前就清理了二级缓存), 此时返回完成的单例并清理刚写入的提前暴露的引用。
+     * addSingleton先写一级缓存、最后清理二级缓存, 因此两者无论怎样交错, 二级缓存中都不会残留该单例
+     */
+    private Object promoteSingletonFactory(String beanName) {
+        Object singletonObject = this.earlySingletonObjects.computeIfAbsent(beanName, name -> {
+            ObjectFactory<?> singletonFactory = this.singletonObjectFactories.get(name);
+            return (singletonFactory != null ? singletonFactory.getObject() : null);
+        });
+        if (singletonObject != null) {
+            this.singletonObjectFactories.remove(beanName);
+        }
+
+        Object completedObject = this.singletonObjects.get(beanName);
+        if (completedObject != null) {
+            if (singletonObject != null) {
+                this.earlySingletonObjects.remove(beanName, singletonObject);
+            }
+            return completedObject;
+        }
+        return singletonObject;
+    }
+
+    /**
+     * 创建单例对象: 核心逻辑在调用singletonFactory参数的getObject方法。
+     * <p>
+     * 创建过程只持有该单例自己的锁, 不同单例可以在不同线程中同时创建。
      */
     public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
-        synchronized (this.singletonObjects) {
-            // 1. 先尝试从一级缓存获取
-            Object singletonObject = this.singletonObjects.get(beanName);
-            // 2. 一级缓存不存在, 尝试手动创建
+        // 1. 先尝试从一级缓存获取
+        Object singletonObject = this.singletonObjects.get(beanName);
+        if (singletonObject != null) {
+            return singletonObject;
+        }
+
+        // 2. 获取该单例的锁; 如果与其他线程出现循环等待, 直接使用对方提前暴露的引用
+        Object earlyReference = lockSingleton(beanName);
+        if (earlyReference != null) {
+            return earlyReference;
+        }
+
+        try {
+            // 3. 拿到锁后再检查一次一级缓存, 不存在则创建
+            singletonObject = this.singletonObjects.get(beanName);
             if (singletonObject == null) {
-                // 2.1 创建前的前置操作
+                // 3.1 创建前的前置操作
                 beforeSingletonCreation(beanName);
+                try {
+                    // 3.2 创建
+                    singletonObject = singletonFactory.getObject();
+                } catch (RuntimeException | Error e) {
+                    removeSingleton(beanName);
+                    throw e;
+                } finally {
+                    afterSingletonCreation(beanName);
+                }
 
-                // 2.2 创建
-                singletonObject = singletonFactory.getObject();
-
-                // 2.3 添加到一级缓存, 从二/三级缓存移除
+                // 3.3 添加到一级缓存, 从二/三级缓存移除
                 addSingleton(beanName, singletonObject);
             }
 
             return singletonObject;
+        } finally {
+            unlockSingleton(beanName);
         }
     }
 
-    public void addSingleton(String beanName, Object singletonObject) {
-        synchronized (this.singletonObjects) {
-            this.singletonObjects.put(beanName, singletonObject);
-            this.singletonObjectFactories.remove(beanName);
-            this.earlySingletonObjects.remove(beanName);
+    /**
+     * 获取单例锁。返回null表示已经拿到锁; 否则说明当前线程和其他正在创建单例的线程之间出现了循环等待
+     * (例如两个线程分别从A和B开始创建互相依赖的A和B), 此时不再等待, 返回beanName提前暴露的引用,
+     * 效果与单线程下通过三级缓存解决循环依赖相同。
+     * <p>
+     * 等待之前先记录 "当前线程 -> 等待的锁" 并唤醒其他等待者, 之后只在锁被释放或者出现新的等待关系时被唤醒重新检查,
+     * 因此形成环的最后一个线程立即就能发现循环等待, 不需要定时轮询
+     */
+    private Object lockSingleton(String beanName) {
+        Thread currentThread = Thread.currentThread();
+        synchronized (this.singletonLockMonitor) {
+            Thread owner = this.singletonLockOwners.putIfAbsent(beanName, currentThread);
+            if (owner == null) {
+                return null;
+            }
+            if (owner == currentThread) {
+                throw new BeanCurrentlyInCreationException("Error in creating bean, possibly circular reference: " + beanName);
+            }
+
+            this.singletonLockWaits.put(currentThread, beanName);
+            // 新的等待关系可能使其他等待者所在的环闭合, 唤醒它们重新检查
+            this.singletonLockMonitor.notifyAll();
+            try {
+                while (true) {
+                    if (this.singletonLockOwners.putIfAbsent(beanName, currentThread) == null) {
+                        return null;
+                    }
+
+                    List<String> cycle = findLockWaitCycle(beanName, currentThread);
+                    if (cycle != null) {
+                        Object earlyReference = getEarlySingletonReference(beanName);
+                        if (earlyReference != null) {
+                            return earlyReference;
+                        }
+                        // 环上的单例都没有提前暴露的引用 (例如构造器注入形成的环), 无法解决
+                        if (!hasEarlySingletonReference(cycle)) {
+                            throw new BeanCurrentlyInCreationException("Error in creating bean, " +
+                                    "unresolvable circular reference between threads: " + cycle);
+                        }
+                        // 环上的其他线程可以使用提前暴露的引用打破循环, 继续等待
+                    }
+                    this.singletonLockMonitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanCreationException("Interrupted while waiting for singleton creation: " + beanName, e);
+            } finally {
+                this.singletonLockWaits.remove(currentThread);
+            }
         }
     }
 
+    /**
+     * 释放单例锁并唤醒等待者, 锁不再保留在map中
+     */
+    private void unlockSingleton(String beanName) {
+        synchronized (this.singletonLockMonitor) {
+            this.singletonLockOwners.remove(beanName);
+            this.singletonLockMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * 从beanName出发, 沿着 "锁的持有线程 -> 该线程正在等待的锁" 查找, 如果回到了当前线程,
+     * 返回环上被等待的bean name, 否则返回null。需要持有singletonLockMonitor
+     */
+    private List<String> findLockWaitCycle(String beanName, Thread currentThread) {
+        List<String> waitedBeanNames = new ArrayList<>();
+        Set<Thread> visitedThreads = new HashSet<>();
+        String waitingFor = beanName;
+        while (waitingFor != null) {
+            waitedBeanNames.add(waitingFor);
+            Thread owner = this.singletonLockOwners.get(waitingFor);
+            if (owner == currentThread) {
+                return waitedBeanNames;
+            }
+            if (owner == null || !visitedThreads.add(owner)) {
+                return null;
+            }
+            waitingFor = this.singletonLockWaits.get(owner);
+        }
+        return null;
+    }
+
+    private boolean hasEarlySingletonReference(List<String> beanNames) {
+        for (String beanName : beanNames) {
+            if (this.earlySingletonObjects.containsKey(beanName)
+                    || this.singletonObjectFactories.containsKey(beanName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取提前暴露的单例引用, 不检查创建它的线程
+     */
+    private Object getEarlySingletonReference(String beanName) {
+        Object singletonObject = this.singletonObjects.get(beanName);
+        if (singletonObject == null) {
+            singletonObject = this.earlySingletonObjects.get(beanName);
+        }
+        if (singletonObject == null) {
+            singletonObject = promoteSingletonFactory(beanName);
+        }
+        return singletonObject;
+    }
+
+    public void addSingleton(String beanName, Object singletonObject) {
+        // 先放入一级缓存再清理三级、二级缓存, 读取方任何时候都能在某一级缓存中找到该对象;
+        // 二级缓存必须最后清理, 与promoteSingletonFactory中的再次检查配合
+        this.singletonObjects.put(beanName, singletonObject);
+        this.singletonObjectFactories.remove(beanName);
+        this.earlySingletonObjects.remove(beanName);
+    }
+
+    /**
+     * 创建单例对象前的前置操作: 将bean对象标记为正在创建
+     */
     private void beforeSingletonCreation(String beanName) {
-        if (!this.singletonsCurrentlyInCreation.add(beanName)) {
+        if (this.singletonsCurrentlyInCreation.putIfAbsent(beanName, Thread.currentThread()) != null) {
             throw new BeanCurrentlyInCreationException("Error in creating bean, possibly circular reference: " + beanName);
         }
     }
 
     /**
-     * 创建单例对象前的前置操作: 将bean对象标记为已创建
+     * 创建单例对象后的后置操作: 去掉正在创建的标记
      */
+    private void afterSingletonCreation(String beanName) {
+        this.singletonsCurrentlyInCreation.remove(beanName);
+    }
+
     public boolean isSingletonCurrentlyInCreation(String beanName) {
-        return singletonsCurrentlyInCreation.contains(beanName);
+        return singletonsCurrentlyInCreation.containsKey(beanName);
     }
 
+    /**
+     * 只有持有该单例创建锁的线程才会调用, 因此不需要额外加锁
+     */
     protected void addSingletonFactory(String beanName, ObjectFactory<?> singletonFactory) {
-        synchronized (this.singletonObjects) {
-            if (!this.singletonObjects.containsKey(beanName)) {
-                this.singletonObjectFactories.put(beanName, singletonFactory);
-                this.earlySingletonObjects.remove(beanName);
-            }
+        if (!this.singletonObjects.containsKey(beanName)) {
+            this.singletonObjectFactories.put(beanName, singletonFactory);
+            this.earlySingletonObjects.remove(beanName);
         }
     }
 
+    /**
+     * 记录dependentBeanName注入了beanName, 销毁时dependentBeanName会先于beanName被销毁
+     */
+    public void registerDependentBean(String beanName, String dependentBeanName) {
+        this.dependentBeanMap.computeIfAbsent(beanName, k -> ConcurrentHashMap.newKeySet()).add(dependentBeanName);
+    }
+
+    /**
+     * 返回注入了beanName的bean name
+     */
+    public Set<String> getDependentBeans(String beanName) {
+        Set<String> dependentBeans = this.dependentBeanMap.get(beanName);
+        return (dependentBeans != null ? Collections.unmodifiableSet(dependentBeans) : Collections.emptySet());
+    }
+
+    /**
+     * 按依赖关系销毁所有单例: 一个bean只有在(直接或间接)注入了它的bean都销毁之后才会被销毁,
+     * 互不依赖的bean按注册的逆序依次销毁, 设置了销毁线程池时并行销毁。
+     * 某个bean销毁失败不会影响其他bean, 所有的失败在最后通过BeanDestructionException一起抛出
+     */
     public void destroySingletons() {
         String[] disposableBeanNames;
         synchronized (this.disposableBeans) {
             disposableBeanNames = StringUtils.toStringArray(disposableBeans.keySet());
         }
 
-        for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
-            destroySingleton(disposableBeanNames[i]);
+        DestructionPlan plan = new DestructionPlan(disposableBeanNames);
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        if (this.destructionExecutor != null) {
+            destroyInParallel(plan, this.destructionExecutor, failures);
+        } else {
+            while (!plan.isFinished()) {
+                String beanName = plan.next();
+                try {
+                    destroySingleton(beanName);
+                } catch (RuntimeException | Error e) {
+                    failures.put(beanName, e);
+                }
+                plan.finish(beanName);
+            }
+        }
+        this.dependentBeanMap.clear();
+
+        if (!failures.isEmpty()) {
+            throw new BeanDestructionException(failures);
+        }
+    }
+
+    /**
+     * 可以销毁的bean提交到线程池, 当前线程等待任意一个bean销毁完成或超时后再提交新的可以销毁的bean。
+     * 超时时间从destroy方法开始执行时计算, 还在线程池队列中等待的bean不会超时
+     */
+    private void destroyInParallel(DestructionPlan plan, Executor executor, Map<String, Throwable> failures) {
+        long timeout = this.destructionTimeoutNanos;
+        // 完成的销毁任务和开始执行的通知 (started) 放入同一个队列, 当前线程只需要等待这一个队列
+        BlockingQueue<Future<String>> events = new LinkedBlockingQueue<>();
+        Future<String> started = new FutureTask<>(() -> null);
+        Map<String, Long> startTimes = new ConcurrentHashMap<>();
+        CompletionService<String> completionService = new ExecutorCompletionService<>(executor, events);
+        Map<Future<String>, String> running = new HashMap<>();
+
+        while (!plan.isFinished()) {
+            // 1. 提交所有可以销毁的bean; 没有正在销毁的bean却也没有可以销毁的bean时说明存在循环依赖, 强制销毁一个
+            while (plan.hasReady() || (running.isEmpty() && !plan.isFinished())) {
+                String beanName = plan.next();
+                Future<String> future = completionService.submit(() -> {
+                    if (timeout > 0) {
+                        startTimes.put(beanName, System.nanoTime());
+                        events.offer(started);
+                    }
+                    destroySingleton(beanName);
+                    return beanName;
+                });
+                running.put(future, beanName);
+            }
+
+            // 2. 等待任意一个bean销毁完成、开始执行, 或者已经开始执行的bean中最早的超时时间到达
+            Long deadline = null;
+            for (String beanName : running.values()) {
+                Long startTime = startTimes.get(beanName);
+                if (startTime != null && (deadline == null || startTime + timeout - deadline < 0)) {
+                    deadline = startTime + timeout;
+                }
+            }
+            Future<String> completed;
+            try {
+                completed = (deadline == null ? events.take() : events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Map.Entry<Future<String>, String> entry : running.entrySet()) {
+                    entry.getKey().cancel(true);
+                    failures.put(entry.getValue(), e);
+                }
+                return;
+            }
+
+            // 3. 超时的bean不再等待, 记为失败
+            if (completed == null || completed == started) {
+                long now = System.nanoTime();
+                for (Iterator<Map.Entry<Future<String>, String>> it = running.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Future<String>, String> entry = it.next();
+                    Long startTime = startTimes.get(entry.getValue());
+                    if (startTime != null && startTime + timeout - now <= 0) {
+                        it.remove();
+                        entry.getKey().cancel(true);
+                        failures.put(entry.getValue(), new TimeoutException("destroy bean " + entry.getValue() + " timed out"));
+                        plan.finish(entry.getValue());
+                    }
+                }
+                continue;
+            }
+
+            // 已经超时并被取消的bean仍然会出现在completionService中, 忽略
+            String beanName = running.remove(completed);
+            if (beanName == null) {
+                continue;
+            }
+            try {
+                completed.get();
+            } catch (ExecutionException e) {
+                failures.put(beanName, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            plan.finish(beanName);
+        }
+    }
+
+    /**
+     * 销毁顺序: 记录每个待销毁的bean还需要等待多少个(直接或间接)注入了它的待销毁bean
+     */
+    private class DestructionPlan {
+
+        private final Map<String, Integer> pendingDependents = new HashMap<>();
+
+        /**
+         * bean name -> 等待该bean销毁的bean name
+         */
+        private final Map<String, List<String>> waitingBeans = new HashMap<>();
+
+        /**
+         * 按注册的逆序排列的未销毁的bean
+         */
+        private final Set<String> remaining = new LinkedHashSet<>();
+
+        private final Deque<String> ready = new ArrayDeque<>();
+
+        DestructionPlan(String[] beanNames) {
+            Set<String> disposable = new HashSet<>(Arrays.asList(beanNames));
+            for (int i = beanNames.length - 1; i >= 0; i--) {
+                this.remaining.add(beanNames[i]);
+            }
+            for (String beanName : this.remaining) {
+                Set<String> dependents = collectDependents(beanName, disposable);
+                this.pendingDependents.put(beanName, dependents.size());
+                for (String dependent : dependents) {
+                    this.waitingBeans.computeIfAbsent(dependent, k -> new ArrayList<>()).add(beanName);
+                }
+                if (dependents.isEmpty()) {
+                    this.ready.add(beanName);
+                }
+            }
+        }
+
+        /**
+         * 沿着dependentBeanMap查找所有直接或间接注入了beanName的待销毁bean
+         */
+        private Set<String> collectDependents(String beanName, Set<String> disposable) {
+            Set<String> dependents = new LinkedHashSet<>();
+            Set<String> visited = new HashSet<>();
+            visited.add(beanName);
+            Deque<String> toVisit = new ArrayDeque<>(getDependentBeans(beanName));
+            while (!toVisit.isEmpty()) {
+                String dependent = toVisit.pop();
+                if (visited.add(dependent)) {
+                    if (disposable.contains(dependent)) {
+                        dependents.add(dependent);
+                    }
+                    toVisit.addAll(getDependentBeans(dependent));
+                }
+            }
+            return dependents;
+        }
+
+        boolean isFinished() {
+            return this.remaining.isEmpty();
+        }
+
+        boolean hasReady() {
+            return !this.ready.isEmpty();
+        }
+
+        /**
+         * 返回下一个可以销毁的bean; 剩下的bean都在等待其他bean时 (循环依赖), 返回最后注册的那个
+         */
+        String next() {
+            String beanName = this.ready.isEmpty() ? this.remaining.iterator().next() : this.ready.poll();
+            this.pendingDependents.remove(beanName);
+            return beanName;
+        }
+
+        void finish(String beanName) {
+            this.remaining.remove(beanName);
+            for (String waiting : this.waitingBeans.getOrDefault(beanName, Collections.emptyList())) {
+                Integer count = this.pendingDependents.get(waiting);
+                if (count != null) {
+                    if (count == 1) {
+                        this.pendingDependents.remove(waiting);
+                        this.ready.add(waiting);
+                    } else {
+                        this.pendingDependents.put(waiting, count - 1);
+                    }
+                }
+            }
         }
     }
 
@@ -142,22 +566,22 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
         }
 
         // 调用destroy方法
-        destroyBean(disposableBean, beanName);
+        if (disposableBean != null) {
+            destroyBean(disposableBean, beanName);
+        }
     }
 
     protected void destroyBean(Object bean, String beanName) {
         try {
             ((DisposableBean) bean).destroy();
         } catch (Exception e) {
-            throw new RuntimeException("destroy bean " + beanName + "failed");
+            throw new RuntimeException("destroy bean " + beanName + " failed", e);
         }
     }
 
     protected void removeSingleton(String beanName) {
-        synchronized (this.singletonObjects) {
-            this.singletonObjects.remove(beanName);
-            this.singletonObjectFactories.remove(beanName);
-            this.earlySingletonObjects.remove(beanName);
-        }
+        this.singletonObjects.remove(beanName);
+        this.singletonObjectFactories.remove(beanName);
+        this.earlySingletonObjects.remove(beanName);
     }
 }
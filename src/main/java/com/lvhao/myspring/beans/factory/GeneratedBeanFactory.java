@@ -0,0 +1,26 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * 编译期由myspring-processor为bean class生成的工厂, 类名为bean class的binary name加上{@value #CLASS_NAME_SUFFIX}。
+ * <p>
+ * 生成的工厂直接调用构造器和@Autowired方法, 创建bean时存在对应的工厂则使用该工厂, 否则通过反射创建和注入
+ */
+public interface GeneratedBeanFactory {
+
+    String CLASS_NAME_SUFFIX = "_BeanFactory";
+
+    /**
+     * 设置为true时忽略生成的工厂, 总是通过反射创建bean
+     */
+    String IGNORE_GENERATED_PROPERTY = "myspring.codegen.ignore";
+
+    /**
+     * 调用构造器创建bean实例, 构造器的参数通过beanFactory解析
+     */
+    Object instantiate(AutowireCapableBeanFactory beanFactory, String beanName);
+
+    /**
+     * 调用bean的@Autowired方法, 参数不能被满足的方法会被跳过
+     */
+    void populate(Object bean, AutowireCapableBeanFactory beanFactory, String beanName);
+}
@@ -0,0 +1,80 @@
+package com.lvhao.myspring.beans.factory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某个类的注入点元信息 (被@Autowired标注的方法, 以后也可以是字段)。
+ * <p>
+ * 注入点只在第一次创建该类的bean时通过反射解析一次, 之后的创建直接回放这些注入点。
+ */
+public class InjectionMetadata {
+
+    /**
+     * 不存在任何注入点的类共享该实例
+     */
+    public static final InjectionMetadata EMPTY = new InjectionMetadata(Object.class, Collections.emptyList());
+
+    private final Class<?> targetClass;
+
+    private final InjectedElement[] injectedElements;
+
+    public InjectionMetadata(Class<?> targetClass, Collection<InjectedElement> elements) {
+        this.targetClass = targetClass;
+        this.injectedElements = elements.toArray(new InjectedElement[0]);
+    }
+
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    public boolean isEmpty() {
+        return injectedElements.length == 0;
+    }
+
+    public List<InjectedElement> getInjectedElements() {
+        return Collections.unmodifiableList(Arrays.asList(injectedElements));
+    }
+
+    /**
+     * 依次对每个注入点进行注入
+     */
+    public void inject(Object target, String beanName) {
+        for (InjectedElement element : injectedElements) {
+            element.inject(target, beanName);
+        }
+    }
+
+    /**
+     * 单个注入点
+     */
+    public abstract static class InjectedElement {
+
+        protected final Member member;
+
+        protected InjectedElement(Member member) {
+            this.member = member;
+        }
+
+        public Member getMember() {
+            return member;
+        }
+
+        /**
+         * 该注入点依赖的类型: 方法的参数类型或字段的类型
+         */
+        public Class<?>[] getDependencyTypes() {
+            if (member instanceof Method) {
+                return ((Method) member).getParameterTypes();
+            }
+            return new Class<?>[]{((Field) member).getType()};
+        }
+
+        protected abstract void inject(Object target, String beanName);
+    }
+}
@@ -0,0 +1,21 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * 在实例化前后也能介入的BeanPostProcessor
+ */
+public interface InstantiationAwareBeanPostProcessor extends BeanPostProcessor {
+
+    /**
+     * 实例化之前调用。返回非null的对象时不再创建bean, 该对象只会再经过postProcessAfterInitialization
+     */
+    default Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        return null;
+    }
+
+    /**
+     * 实例化之后、属性填充之前调用, 返回false时跳过属性填充
+     */
+    default boolean postProcessAfterInstantiation(Object bean, String beanName) {
+        return true;
+    }
+}
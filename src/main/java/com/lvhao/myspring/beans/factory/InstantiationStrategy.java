@@ -0,0 +1,19 @@
+package com.lvhao.myspring.beans.factory;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * 负责创建bean实例的策略
+ */
+public interface InstantiationStrategy {
+
+    /**
+     * 使用无参构造器创建bean实例
+     */
+    Object instantiate(BeanDefinition bd, String beanName);
+
+    /**
+     * 使用指定的构造器和参数创建bean实例
+     */
+    Object instantiate(BeanDefinition bd, String beanName, Constructor<?> ctor, Object... args);
+}
@@ -0,0 +1,92 @@
+package com.lvhao.myspring.beans.factory;
+
+import com.lvhao.myspring.exception.BeanCreationException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+
+/**
+ * 基于MethodHandle的实例化策略。
+ * <p>
+ * 构造器在第一次使用时被绑定为 (Object[])Object 形式的MethodHandle并缓存在bean definition上,
+ * 之后的创建直接invokeExact, 不再经过反射的访问检查。无法绑定时退回到反射实现。
+ */
+public class MethodHandleInstantiationStrategy extends SimpleInstantiationStrategy {
+
+    private static final MethodType GENERIC_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    @Override
+    public Object instantiate(BeanDefinition bd, String beanName) {
+        if (!(bd instanceof AnnotatedBeanDefinition)) {
+            return super.instantiate(bd, beanName);
+        }
+
+        AnnotatedBeanDefinition abd = (AnnotatedBeanDefinition) bd;
+        ConstructorHandle bound = abd.boundConstructorHandle;
+        if (bound == null || bound.constructor.getParameterCount() != 0) {
+            bound = bind(abd, getDefaultConstructor(bd, beanName));
+        }
+        return invoke(bound, bd, beanName, EMPTY_ARGS);
+    }
+
+    @Override
+    public Object instantiate(BeanDefinition bd, String beanName, Constructor<?> ctor, Object... args) {
+        if (!(bd instanceof AnnotatedBeanDefinition)) {
+            return super.instantiate(bd, beanName, ctor, args);
+        }
+
+        AnnotatedBeanDefinition abd = (AnnotatedBeanDefinition) bd;
+        ConstructorHandle bound = abd.boundConstructorHandle;
+        if (bound == null || (bound.constructor != ctor && !bound.constructor.equals(ctor))) {
+            bound = bind(abd, ctor);
+        }
+        return invoke(bound, bd, beanName, args);
+    }
+
+    private Object invoke(ConstructorHandle bound, BeanDefinition bd, String beanName, Object[] args) {
+        if (bound.handle == null) {
+            return super.instantiate(bd, beanName, bound.constructor, args);
+        }
+        try {
+            return (Object) bound.handle.invokeExact(args);
+        } catch (Throwable e) {
+            throw new BeanCreationException("Error in instantiating bean: " + beanName, e);
+        }
+    }
+
+    /**
+     * 将构造器绑定为MethodHandle并记录在bean definition上
+     */
+    private ConstructorHandle bind(AnnotatedBeanDefinition abd, Constructor<?> ctor) {
+        MethodHandle handle;
+        try {
+            ctor.setAccessible(true);
+            handle = MethodHandles.lookup().unreflectConstructor(ctor)
+                    .asSpreader(Object[].class, ctor.getParameterCount())
+                    .asType(GENERIC_CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // 绑定失败, 之后退回到反射
+            handle = null;
+        }
+
+        ConstructorHandle bound = new ConstructorHandle(ctor, handle);
+        abd.boundConstructorHandle = bound;
+        return bound;
+    }
+
+    static final class ConstructorHandle {
+
+        final Constructor<?> constructor;
+
+        final MethodHandle handle;
+
+        ConstructorHandle(Constructor<?> constructor, MethodHandle handle) {
+            this.constructor = constructor;
+            this.handle = handle;
+        }
+    }
+}
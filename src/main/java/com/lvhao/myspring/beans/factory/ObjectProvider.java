@@ -0,0 +1,21 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * 延迟获取依赖的ObjectFactory, 仿照Spring的ObjectProvider。
+ * <p>
+ * 构造器或@Autowired方法的参数声明为ObjectProvider&lt;T&gt;时, 创建bean时只注入一个provider,
+ * 目标bean在第一次调用getObject/getIfAvailable时才被解析和创建, 因此不常用的重量级bean不会拖慢启动
+ */
+public interface ObjectProvider<T> extends ObjectFactory<T> {
+
+    /**
+     * 获取目标bean, 不存在时抛出NoSuchBeanDefinitionException, 存在多个时抛出NoUniqueBeanDefinitionException
+     */
+    @Override
+    T getObject();
+
+    /**
+     * 获取目标bean, 不存在时返回null
+     */
+    T getIfAvailable();
+}
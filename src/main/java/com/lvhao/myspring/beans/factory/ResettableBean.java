@@ -0,0 +1,10 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * pooled作用域的bean归还到池中时会回调reset, 清除上一次使用留下的状态。
+ * reset抛出异常时该对象会被丢弃而不是放回池中
+ */
+public interface ResettableBean {
+
+    void reset() throws Exception;
+}
@@ -0,0 +1,25 @@
+package com.lvhao.myspring.beans.factory;
+
+/**
+ * 自定义作用域的SPI, 仿照Spring的Scope。
+ * <p>
+ * singleton、prototype和pooled由BeanFactory直接处理, 其他作用域需要通过AbstractBeanFactory#registerScope注册,
+ * 之后@Scope中的名称即可引用该作用域。作用域实现了DisposableBean时, 容器关闭时会调用其destroy方法
+ */
+public interface Scope {
+
+    /**
+     * 从作用域中获取对象, 不存在时通过objectFactory创建并保存到作用域中
+     */
+    Object get(String name, ObjectFactory<?> objectFactory);
+
+    /**
+     * 从作用域中移除对象, 不存在时返回null。被移除对象的销毁回调由调用方负责
+     */
+    Object remove(String name);
+
+    /**
+     * 注册对象在作用域被清理时执行的销毁回调
+     */
+    void registerDestructionCallback(String name, Runnable callback);
+}
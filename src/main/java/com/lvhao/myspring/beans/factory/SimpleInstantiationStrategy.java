@@ -0,0 +1,34 @@
+package com.lvhao.myspring.beans.factory;
+
+import com.lvhao.myspring.exception.BeanCreationException;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * 基于反射 (Constructor.newInstance) 的实例化策略
+ */
+public class SimpleInstantiationStrategy implements InstantiationStrategy {
+
+    @Override
+    public Object instantiate(BeanDefinition bd, String beanName) {
+        return instantiate(bd, beanName, getDefaultConstructor(bd, beanName));
+    }
+
+    @Override
+    public Object instantiate(BeanDefinition bd, String beanName, Constructor<?> ctor, Object... args) {
+        try {
+            ctor.setAccessible(true);
+            return ctor.newInstance(args);
+        } catch (Throwable e) {
+            throw new BeanCreationException("Error in instantiating bean: " + beanName, e);
+        }
+    }
+
+    protected Constructor<?> getDefaultConstructor(BeanDefinition bd, String beanName) {
+        try {
+            return bd.getBeanClass().getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new BeanCreationException("No default constructor found for bean: " + beanName, e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.lvhao.myspring.beans.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * thread作用域: 每个线程持有每个bean的一个实例, 工作线程可以反复使用非线程安全的对象而不必每次创建原型。
+ * <p>
+ * 实例保存在ThreadLocal中的map里, 只有所属线程会访问, 因此获取时不需要任何同步。
+ * clear清理当前线程的实例并执行其销毁回调; 容器关闭时destroy清理所有仍然存活的线程的实例。
+ * <p>
+ * destroy不能修改其他线程的ThreadLocal, 因此每个线程的map记录创建时的代数, destroy时代数加一,
+ * 线程再次访问时发现自己的map已经过期 (其中的实例已被销毁), 丢弃它并重新创建
+ */
+public class SimpleThreadScope implements Scope, DisposableBean {
+
+    public static final String SCOPE_NAME = "thread";
+
+    private final ThreadLocal<ThreadScopeMap> threadScope = ThreadLocal.withInitial(this::newThreadScopeMap);
+
+    /**
+     * 所有线程的实例, 线程结束后其实例随线程一起被回收, 只在线程第一次访问和容器关闭时使用
+     */
+    private final Map<Thread, ThreadScopeMap> allThreadScopes = new WeakHashMap<>();
+
+    /**
+     * 每次destroy加一, 只在持有allThreadScopes的锁时修改
+     */
+    private volatile int generation;
+
+    private ThreadScopeMap newThreadScopeMap() {
+        synchronized (this.allThreadScopes) {
+            ThreadScopeMap scopeMap = new ThreadScopeMap(this.generation);
+            this.allThreadScopes.put(Thread.currentThread(), scopeMap);
+            return scopeMap;
+        }
+    }
+
+    /**
+     * 当前线程的map, 已经被destroy销毁过的map会被替换为新的map
+     */
+    private ThreadScopeMap currentScopeMap() {
+        ThreadScopeMap scopeMap = this.threadScope.get();
+        if (scopeMap.generation != this.generation) {
+            scopeMap = newThreadScopeMap();
+            this.threadScope.set(scopeMap);
+        }
+        return scopeMap;
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        ThreadScopeMap scopeMap = currentScopeMap();
+        Object bean = scopeMap.objects.get(name);
+        if (bean == null) {
+            // 创建过程中可能会递归获取同一线程中的其他thread作用域的bean, 不能使用computeIfAbsent
+            bean = objectFactory.getObject();
+            scopeMap.objects.put(name, bean);
+        }
+        return bean;
+    }
+
+    @Override
+    public Object remove(String name) {
+        ThreadScopeMap scopeMap = currentScopeMap();
+        scopeMap.destructionCallbacks.remove(name);
+        return scopeMap.objects.remove(name);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        currentScopeMap().destructionCallbacks.put(name, callback);
+    }
+
+    /**
+     * 清理当前线程的所有实例, 按创建的相反顺序执行销毁回调
+     */
+    public void clear() {
+        ThreadScopeMap scopeMap = this.threadScope.get();
+        this.threadScope.remove();
+        synchronized (this.allThreadScopes) {
+            if (scopeMap.generation != this.generation) {
+                // 已经被destroy销毁过
+                return;
+            }
+            this.allThreadScopes.remove(Thread.currentThread());
+        }
+        scopeMap.destroy();
+    }
+
+    /**
+     * 容器关闭时清理所有线程的实例, 其他线程之后再访问该作用域时会得到新创建的实例
+     */
+    @Override
+    public void destroy() {
+        List<ThreadScopeMap> scopeMaps;
+        synchronized (this.allThreadScopes) {
+            scopeMaps = new ArrayList<>(this.allThreadScopes.values());
+            this.allThreadScopes.clear();
+            this.generation++;
+        }
+        this.threadScope.remove();
+        for (ThreadScopeMap scopeMap : scopeMaps) {
+            scopeMap.destroy();
+        }
+    }
+
+    /**
+     * 一个线程中的实例和销毁回调
+     */
+    private static class ThreadScopeMap {
+
+        /**
+         * 创建时SimpleThreadScope的代数
+         */
+        private final int generation;
+
+        private final Map<String, Object> objects = new LinkedHashMap<>();
+
+        private final Map<String, Runnable> destructionCallbacks = new LinkedHashMap<>();
+
+        ThreadScopeMap(int generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * 某个回调失败时仍然执行剩余的回调, 最后抛出第一个异常
+         */
+        void destroy() {
+            List<Runnable> callbacks = new ArrayList<>(this.destructionCallbacks.values());
+            Collections.reverse(callbacks);
+            this.objects.clear();
+            this.destructionCallbacks.clear();
+            RuntimeException failure = null;
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.lvhao.myspring.cache;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量上限和过期时间的并发缓存。
+ * <p>
+ * 读取只访问ConcurrentHashMap, 不加锁; 写入在锁内把条目追加到写入顺序队列, 并从队首清理已过期的条目,
+ * 超出maxSize时淘汰最早写入的条目。所有条目的有效时间相同, 因此队列同时也是按过期时间排列的。
+ * 统计信息使用LongAdder记录, 多线程频繁命中时不会在计数器上产生竞争
+ */
+public class BoundedCache {
+
+    private final String name;
+
+    private final int maxSize;
+
+    /**
+     * 写入后的有效时间, 0表示不过期
+     */
+    private final long expireAfterWriteNanos;
+
+    private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 按写入顺序排列的条目, 只在持有evictionLock时访问; 已经被移除或替换的条目在到达队首时丢弃
+     */
+    private final ArrayDeque<Entry> writeOrder = new ArrayDeque<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    public BoundedCache(String name, int maxSize, long expireAfterWrite, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (expireAfterWrite < 0) {
+            throw new IllegalArgumentException("expireAfterWrite must not be negative: " + expireAfterWrite);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+    }
+
+    /**
+     * 返回key对应的值, 不存在或已过期时返回null
+     */
+    public Object get(Object key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null && this.expireAfterWriteNanos > 0 && entry.isExpired(System.nanoTime())) {
+            if (this.entries.remove(key, entry)) {
+                this.expirationCount.increment();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            this.missCount.increment();
+            return null;
+        }
+        this.hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * 写入key对应的值。key已经存在且未过期时保留原来的值, 因此并发未命中的调用方最终都会看到同一个结果
+     */
+    public void put(Object key, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cache '" + this.name + "' does not accept null values");
+        }
+        this.evictionLock.lock();
+        try {
+            long now = (this.expireAfterWriteNanos > 0 ? System.nanoTime() : 0);
+            Entry existing = this.entries.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                return;
+            }
+            Entry entry = new Entry(key, value, (this.expireAfterWriteNanos > 0 ? now + this.expireAfterWriteNanos : 0));
+            this.entries.put(key, entry);
+            if (existing != null) {
+                this.expirationCount.increment();
+            }
+            this.writeOrder.addLast(entry);
+            evictEntries(now);
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 从队首开始: 丢弃已经不在缓存中的条目, 移除已过期的条目, 淘汰超出容量的条目
+     */
+    private void evictEntries(long now) {
+        Entry head;
+        while ((head = this.writeOrder.peekFirst()) != null) {
+            if (this.entries.get(head.key) != head) {
+                this.writeOrder.pollFirst();
+            } else if (head.isExpired(now)) {
+                this.writeOrder.pollFirst();
+                if (this.entries.remove(head.key, head)) {
+                    this.expirationCount.increment();
+                }
+            } else if (this.entries.size() > this.maxSize) {
+                this.writeOrder.pollFirst();
+                if (this.entries.remove(head.key, head)) {
+                    this.evictionCount.increment();
+                }
+            } else {
+                break;
+            }
+        }
+    }
+
+    public void clear() {
+        this.evictionLock.lock();
+        try {
+            this.entries.clear();
+            this.writeOrder.clear();
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getExpireAfterWriteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expireAfterWriteNanos);
+    }
+
+    /**
+     * 当前缓存的条目数量 (可能包含已过期但还没有被清理的条目)
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * 命中的总次数
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * 未命中 (不存在或已过期) 的总次数
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * 命中次数占总查询次数的比例, 还没有查询过时为0
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return (requests == 0 ? 0 : (double) hits / requests);
+    }
+
+    /**
+     * 因超出容量而被淘汰的条目总数
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * 因过期而被移除的条目总数
+     */
+    public long getExpirationCount() {
+        return this.expirationCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache[" + name + "]: size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount();
+    }
+
+    private static final class Entry {
+
+        private final Object key;
+
+        private final Object value;
+
+        /**
+         * 过期时刻 (System.nanoTime), 0表示不过期
+         */
+        private final long expireAt;
+
+        Entry(Object key, Object value, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return this.expireAt != 0 && now - this.expireAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.lvhao.myspring.cache;
+
+import com.lvhao.myspring.annotation.cache.Cacheable;
+import com.lvhao.myspring.beans.factory.BeanPostProcessor;
+import com.lvhao.myspring.exception.BeanCreationException;
+import com.lvhao.myspring.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为存在@Cacheable方法的bean创建JDK动态代理, 代理先按参数查询缓存, 未命中时才调用目标方法。
+ * <p>
+ * 每个类的@Cacheable方法只解析一次: 接口方法 -> 缓存的映射在第一次处理该类时建立, 代理每次调用只需要查询该映射。
+ * 同名的缓存由所有bean共享, 以第一次创建时的配置为准。
+ * 代理只实现了bean的接口, 按实现类获取或注入该bean时抛出BeanCreationException
+ */
+public class CacheableBeanPostProcessor implements BeanPostProcessor {
+
+    /**
+     * 方法返回null时缓存中保存的占位对象
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    private final Map<String, BoundedCache> caches = new ConcurrentHashMap<>(16);
+
+    /**
+     * 类 -> 该类的接口方法和缓存的映射, 没有@Cacheable方法的类对应空map
+     */
+    private final Map<Class<?>, Map<Method, BoundedCache>> cacheOperationsCache = new ConcurrentHashMap<>(64);
+
+    /**
+     * 获取缓存 (包含缓存的统计信息), 还没有bean使用该缓存时返回null
+     */
+    public BoundedCache getCache(String name) {
+        return this.caches.get(name);
+    }
+
+    public Set<String> getCacheNames() {
+        return Collections.unmodifiableSet(this.caches.keySet());
+    }
+
+    @Override
+    public boolean requiresPostProcessing(Class<?> beanClass, String beanName) {
+        return !findCacheOperations(beanClass).isEmpty();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> beanClass = bean.getClass();
+        Map<Method, BoundedCache> cacheOperations = findCacheOperations(beanClass);
+        if (cacheOperations.isEmpty()) {
+            return bean;
+        }
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(beanClass).toArray(new Class<?>[0]);
+        return Proxy.newProxyInstance(beanClass.getClassLoader(), interfaces,
+                new CachingInvocationHandler(bean, cacheOperations));
+    }
+
+    private Map<Method, BoundedCache> findCacheOperations(Class<?> beanClass) {
+        Map<Method, BoundedCache> cacheOperations = this.cacheOperationsCache.get(beanClass);
+        if (cacheOperations == null) {
+            cacheOperations = this.cacheOperationsCache.computeIfAbsent(beanClass, this::buildCacheOperations);
+        }
+        return cacheOperations;
+    }
+
+    /**
+     * @Cacheable可以标注在实现类的方法或者接口方法上; 标注在不属于任何接口的方法上时代理无法拦截, 直接报错
+     */
+    private Map<Method, BoundedCache> buildCacheOperations(Class<?> beanClass) {
+        Map<Method, BoundedCache> cacheOperations = new HashMap<>();
+        Map<String, Method> interfaceMethods = new HashMap<>();
+        for (Class<?> ifc : ClassUtils.getAllInterfaces(beanClass)) {
+            for (Method interfaceMethod : ifc.getMethods()) {
+                Method method = getImplementation(beanClass, interfaceMethod);
+                interfaceMethods.put(signature(interfaceMethod), interfaceMethod);
+                Cacheable cacheable = (method != null ? method.getAnnotation(Cacheable.class) : null);
+                if (cacheable == null) {
+                    cacheable = interfaceMethod.getAnnotation(Cacheable.class);
+                }
+                if (cacheable != null) {
+                    interfaceMethod.setAccessible(true);
+                    cacheOperations.put(interfaceMethod, getOrCreateCache(cacheable, method != null ? method : interfaceMethod));
+                }
+            }
+        }
+
+        for (Class<?> clazz = beanClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Cacheable.class) && !interfaceMethods.containsKey(signature(method))) {
+                    throw new BeanCreationException("@Cacheable method " + clazz.getName() + "." + method.getName()
+                            + " must be declared in an interface implemented by the bean");
+                }
+            }
+        }
+
+        return cacheOperations.isEmpty() ? Collections.emptyMap() : cacheOperations;
+    }
+
+    private static Method getImplementation(Class<?> beanClass, Method interfaceMethod) {
+        try {
+            return beanClass.getMethod(interfaceMethod.getName(), interfaceMethod.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static String signature(Method method) {
+        return method.getName() + Arrays.toString(method.getParameterTypes());
+    }
+
+    /**
+     * 默认的缓存名称包含类的全限定名和参数类型, 重载的方法以及不同包中同名的类不会共享缓存
+     */
+    private BoundedCache getOrCreateCache(Cacheable cacheable, Method method) {
+        String name = cacheable.value().isEmpty() ?
+                method.getDeclaringClass().getName() + "." + signature(method) : cacheable.value();
+        return this.caches.computeIfAbsent(name, n -> new BoundedCache(n, cacheable.maxSize(),
+                cacheable.expireAfterWriteMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 没有参数时使用SimpleKey.EMPTY, 只有一个参数时直接使用该参数, 否则使用所有参数组成的SimpleKey
+     */
+    static Object generateKey(Object[] args) {
+        if (args == null || args.length == 0) {
+            return SimpleKey.EMPTY;
+        }
+        if (args.length == 1 && args[0] != null && !args[0].getClass().isArray()) {
+            return args[0];
+        }
+        return new SimpleKey(args);
+    }
+
+    /**
+     * 代理的调用处理器, 持有该类预先解析好的 接口方法 -> 缓存 映射
+     */
+    private static final class CachingInvocationHandler implements InvocationHandler {
+
+        private final Object target;
+
+        private final Map<Method, BoundedCache> cacheOperations;
+
+        CachingInvocationHandler(Object target, Map<Method, BoundedCache> cacheOperations) {
+            this.target = target;
+            this.cacheOperations = cacheOperations;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            BoundedCache cache = this.cacheOperations.get(method);
+            if (cache == null) {
+                if (method.getDeclaringClass() == Object.class) {
+                    return invokeObjectMethod(proxy, method, args);
+                }
+                return invokeTarget(method, args);
+            }
+
+            Object key = generateKey(args);
+            Object value = cache.get(key);
+            if (value == null) {
+                value = invokeTarget(method, args);
+                cache.put(key, value != null ? value : NULL_VALUE);
+                return value;
+            }
+            return (value != NULL_VALUE ? value : null);
+        }
+
+        /**
+         * equals和hashCode按代理对象本身比较, 其余Object方法交给目标对象
+         */
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            return invokeTarget(method, args);
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(this.target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    /**
+     * 由多个参数组成的缓存key, 数组参数按内容比较
+     */
+    static final class SimpleKey {
+
+        static final SimpleKey EMPTY = new SimpleKey(new Object[0]);
+
+        private final Object[] params;
+
+        private final int hashCode;
+
+        SimpleKey(Object[] params) {
+            this.params = params.clone();
+            this.hashCode = Arrays.deepHashCode(this.params);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (this == other || (other instanceof SimpleKey && Arrays.deepEquals(this.params, ((SimpleKey) other).params)));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "SimpleKey " + Arrays.deepToString(this.params);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.lvhao.myspring.context;
 
 import com.lvhao.myspring.beans.factory.BeanFactory;
+import com.lvhao.myspring.beans.factory.ObjectProvider;
 import com.lvhao.myspring.exception.UnSupportOperationException;
 
+import java.util.List;
+import java.util.Map;
+
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -22,5 +26,40 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
         return this.getBeanFactory().getBean(name);
     }
 
+    @Override
+    public int getBeanHandle(String name) {
+        return this.getBeanFactory().getBeanHandle(name);
+    }
+
+    @Override
+    public Object getBean(int handle) {
+        return this.getBeanFactory().getBean(handle);
+    }
+
+    @Override
+    public <T> T getBean(Class<T> requiredType) {
+        return this.getBeanFactory().getBean(requiredType);
+    }
+
+    @Override
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        return this.getBeanFactory().getBeansOfType(type);
+    }
+
+    @Override
+    public List<String> getBeanNamesForType(Class<?> type) {
+        return this.getBeanFactory().getBeanNamesForType(type);
+    }
+
+    @Override
+    public <T> ObjectProvider<T> getBeanProvider(Class<T> requiredType) {
+        return this.getBeanFactory().getBeanProvider(requiredType);
+    }
+
+    @Override
+    public void releaseBean(String name, Object bean) {
+        this.getBeanFactory().releaseBean(name, bean);
+    }
+
 
 }
@@ -1,9 +1,19 @@
 package com.lvhao.myspring.context;
 
 import com.lvhao.myspring.beans.factory.*;
+import com.lvhao.myspring.cache.BoundedCache;
+import com.lvhao.myspring.cache.CacheableBeanPostProcessor;
+import com.lvhao.myspring.core.metrics.ApplicationStartup;
+import com.lvhao.myspring.core.metrics.BufferingApplicationStartup;
+import com.lvhao.myspring.core.metrics.StartupStep;
 import com.lvhao.myspring.util.AnnotatedBeanDefinitionReader;
+import com.lvhao.myspring.util.ClassUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class AnnotationConfigApplicationContext extends AbstractApplicationContext
         implements BeanDefinitionRegistry {
@@ -12,8 +22,13 @@ public class AnnotationConfigApplicationContext extends AbstractApplicationConte
 
     private AnnotatedBeanDefinitionReader reader;
 
+    private Path registrySnapshotFile;
+
+    private final CacheableBeanPostProcessor cacheableBeanPostProcessor = new CacheableBeanPostProcessor();
+
     public AnnotationConfigApplicationContext() {
         beanFactory = new DefaultListableBeanFactory();
+        beanFactory.addBeanPostProcessor(cacheableBeanPostProcessor);
         reader = new AnnotatedBeanDefinitionReader(this);
     }
 
@@ -30,16 +45,144 @@ public class AnnotationConfigApplicationContext extends AbstractApplicationConte
         this.reader.register(componentClasses);
     }
 
+    /**
+     * 开启并行创建单例, 需要在refresh之前调用
+     */
+    public void setPreInstantiationExecutor(Executor executor) {
+        this.beanFactory.setPreInstantiationExecutor(executor);
+    }
+
+    /**
+     * 开启异步初始化: 实现了AsyncInitializingBean的单例在线程池中初始化, refresh在最后等待所有的初始化完成。
+     * 需要与setPreInstantiationExecutor使用不同的线程池
+     */
+    public void setAsyncInitializationExecutor(Executor executor) {
+        this.beanFactory.setAsyncInitializationExecutor(executor);
+    }
+
+    /**
+     * 开启并行销毁单例: close时互不依赖的单例并行销毁, 依赖其他单例的单例先于其依赖被销毁
+     */
+    public void setDestructionExecutor(Executor executor) {
+        this.beanFactory.setDestructionExecutor(executor);
+    }
+
+    /**
+     * 并行销毁时每个单例的销毁超时时间
+     */
+    public void setDestructionTimeout(long timeout, TimeUnit unit) {
+        this.beanFactory.setDestructionTimeout(timeout, unit);
+    }
+
+    /**
+     * 设置记录启动各阶段耗时的ApplicationStartup, 需要在refresh之前调用;
+     * BufferingApplicationStartup在refresh结束后停止记录
+     */
+    public void setApplicationStartup(ApplicationStartup applicationStartup) {
+        this.beanFactory.setApplicationStartup(applicationStartup);
+        this.reader.setApplicationStartup(applicationStartup);
+    }
+
+    /**
+     * 手动注册BeanPostProcessor; 实现了BeanPostProcessor的bean会在refresh时自动注册
+     */
+    public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
+        this.beanFactory.addBeanPostProcessor(beanPostProcessor);
+    }
+
+    /**
+     * 获取@Cacheable方法使用的缓存 (包含命中率等统计信息), 还没有bean使用该缓存时返回null
+     */
+    public BoundedCache getCache(String name) {
+        return this.cacheableBeanPostProcessor.getCache(name);
+    }
+
+    /**
+     * 注册自定义作用域
+     */
+    public void registerScope(String scopeName, Scope scope) {
+        this.beanFactory.registerScope(scopeName, scope);
+    }
+
+    /**
+     * 开启registry快照: refresh时如果快照有效则直接从快照注册bean definition并跳过类路径扫描,
+     * 否则照常扫描并在单例创建完成后写入新的快照。需要在refresh之前调用
+     */
+    public void setRegistrySnapshotFile(Path registrySnapshotFile) {
+        this.registrySnapshotFile = registrySnapshotFile;
+    }
+
+    public ApplicationStartup getApplicationStartup() {
+        return this.beanFactory.getApplicationStartup();
+    }
+
     public void refresh() {
         synchronized (this.startupShutdownMonitor) {
-            // 1. check initialized
-            checkAlreadyRefreshed();
+            StartupStep refreshStep = getApplicationStartup().start("myspring.context.refresh");
+            try {
+                // 1. check initialized
+                checkAlreadyRefreshed();
+
+                // 2. 解析@Configuration类, 快照有效时跳过扫描
+                List<String> basePackages = null;
+                Long fingerprint = null;
+                boolean loadedFromSnapshot = false;
+                if (this.registrySnapshotFile != null) {
+                    basePackages = reader.resolveBasePackages();
+                    fingerprint = computeFingerprint(basePackages);
+                    loadedFromSnapshot = fingerprint != null && loadRegistrySnapshot(basePackages, fingerprint);
+                }
+                if (!loadedFromSnapshot) {
+                    reader.scan();
+                }
+
+                // 3. 先创建并注册BeanPostProcessor, 之后创建的bean都会经过这些处理器
+                StartupStep step = getApplicationStartup().start("myspring.context.post-processors.register");
+                try {
+                    registerBeanPostProcessors();
+                } finally {
+                    step.end();
+                }
+
+                // 4. 初始化单例对象
+                step = getApplicationStartup().start("myspring.context.beans.pre-instantiate");
+                try {
+                    beanFactory.preInstantiateSingletons();
+                } finally {
+                    step.end();
+                }
 
-            // 2. 解析@Configuration类
-            reader.scan();
+                // 5. 等待异步初始化的单例全部完成
+                step = getApplicationStartup().start("myspring.context.beans.await-initialization");
+                try {
+                    beanFactory.awaitAsyncInitializations();
+                } finally {
+                    step.end();
+                }
 
-            // 3. 初始化单例对象
-            beanFactory.preInstantiateSingletons();
+                // 6. 单例的构造器都已解析, 写入新的快照
+                if (fingerprint != null && !loadedFromSnapshot) {
+                    writeRegistrySnapshot(basePackages, fingerprint);
+                }
+
+                // 7. 冻结registry, 之后不能再注册bean definition
+                beanFactory.freezeConfiguration();
+            } finally {
+                refreshStep.end();
+                // refresh之后创建的bean (如原型bean) 不再记录, 避免记录的阶段无限增长
+                if (getApplicationStartup() instanceof BufferingApplicationStartup) {
+                    ((BufferingApplicationStartup) getApplicationStartup()).stopRecording();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按注册顺序创建实现了BeanPostProcessor的bean, 处理器依赖的bean不会经过之后注册的处理器
+     */
+    private void registerBeanPostProcessors() {
+        for (String beanName : beanFactory.getBeanNamesForType(BeanPostProcessor.class)) {
+            beanFactory.addBeanPostProcessor((BeanPostProcessor) beanFactory.getBean(beanName));
         }
     }
 
@@ -50,6 +193,48 @@ public class AnnotationConfigApplicationContext extends AbstractApplicationConte
     }
 
 
+    private Long computeFingerprint(List<String> basePackages) {
+        try {
+            return RegistrySnapshot.computeFingerprint(ClassUtils.getDefaultClassLoader(), basePackages);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 快照不存在、已损坏、已过期或者其中的类已经不存在时返回false, 此时不会注册任何bean definition
+     */
+    private boolean loadRegistrySnapshot(List<String> basePackages, long fingerprint) {
+        StartupStep step = getApplicationStartup().start("myspring.context.snapshot.load");
+        try {
+            RegistrySnapshot snapshot = RegistrySnapshot.readFrom(this.registrySnapshotFile);
+            if (snapshot == null || !snapshot.matches(basePackages, fingerprint)) {
+                return false;
+            }
+            snapshot.registerTo(this, ClassUtils.getDefaultClassLoader());
+            return true;
+        } catch (IOException | ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // 快照损坏 (包括其中的数据不合法导致的运行时异常) 等同于没有快照
+            return false;
+        } finally {
+            step.end();
+        }
+    }
+
+    /**
+     * 快照只是启动优化, 写入失败不影响本次启动, 下次启动会重新扫描
+     */
+    private void writeRegistrySnapshot(List<String> basePackages, long fingerprint) {
+        StartupStep step = getApplicationStartup().start("myspring.context.snapshot.write");
+        try {
+            RegistrySnapshot.capture(this.beanFactory, basePackages, fingerprint).writeTo(this.registrySnapshotFile);
+        } catch (IOException e) {
+            // ignore
+        } finally {
+            step.end();
+        }
+    }
+
     private void checkAlreadyRefreshed() {
         if (!this.refreshed.compareAndSet(false, true)) {
             throw new IllegalStateException("ApplicationContext cannot be refreshed multiple times");
@@ -0,0 +1,418 @@
+package com.lvhao.myspring.context;
+
+import com.lvhao.myspring.beans.factory.AnnotatedBeanDefinition;
+import com.lvhao.myspring.beans.factory.BeanDefinition;
+import com.lvhao.myspring.beans.factory.BeanDefinitionRegistry;
+import com.lvhao.myspring.beans.factory.DefaultListableBeanFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * bean definition registry的二进制快照。
+ * <p>
+ * 快照记录了扫描得到的每个bean的名称、类名、作用域、是否延迟初始化以及已经解析过的构造器和参数对应的bean,
+ * bean按照依赖顺序排列 (单例排在其依赖之后)。下次启动时, 如果@ComponentScan的basePackages和类路径指纹都没有变化,
+ * 直接从快照注册bean definition, 跳过类路径扫描、bean name生成、作用域解析和构造器挑选。
+ * <p>
+ * 类路径指纹由basePackages对应的每个资源计算: 目录取其下所有文件的相对路径、大小和修改时间, jar取jar文件本身的大小和修改时间
+ */
+public final class RegistrySnapshot {
+
+    private static final int MAGIC = 0x4D595353;
+
+    private static final short VERSION = 1;
+
+    private static final byte CONSTRUCTOR_UNRESOLVED = 0;
+
+    private static final byte CONSTRUCTOR_DEFAULT = 1;
+
+    private static final byte CONSTRUCTOR_RESOLVED = 2;
+
+    /**
+     * 快照文件大小的上限, 超出时视为损坏, 避免把异常的大文件读入内存
+     */
+    private static final long MAX_FILE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 快照中basePackage和bean数量的上限
+     */
+    private static final int MAX_COUNT = 1 << 20;
+
+    /**
+     * 每个元素至少占用的字节数, 用于按剩余长度检查读到的数量: writeUTF至少2字节, writeBoolean和writeByte各1字节
+     */
+    private static final int MIN_BASE_PACKAGE_BYTES = 2;
+
+    private static final int MIN_BEAN_ENTRY_BYTES = 2 + 2 + 2 + 1 + 1;
+
+    private static final int MIN_PARAMETER_BYTES = 2 + 1 + 1;
+
+    private final long fingerprint;
+
+    private final List<String> basePackages;
+
+    private final List<BeanEntry> beanEntries;
+
+    private RegistrySnapshot(long fingerprint, List<String> basePackages, List<BeanEntry> beanEntries) {
+        this.fingerprint = fingerprint;
+        this.basePackages = basePackages;
+        this.beanEntries = beanEntries;
+    }
+
+    /**
+     * 记录bean工厂当前的状态, 应该在单例创建完成之后调用, 这样单例的构造器解析结果也会被记录
+     */
+    public static RegistrySnapshot capture(DefaultListableBeanFactory beanFactory, List<String> basePackages, long fingerprint) {
+        List<BeanEntry> beanEntries = new ArrayList<>();
+        for (String beanName : beanFactory.getBeanNamesInDependencyOrder()) {
+            BeanDefinition bd = beanFactory.getBeanDefinition(beanName);
+            if (bd instanceof AnnotatedBeanDefinition) {
+                beanEntries.add(BeanEntry.of(beanName, (AnnotatedBeanDefinition) bd));
+            }
+        }
+        return new RegistrySnapshot(fingerprint, new ArrayList<>(basePackages), beanEntries);
+    }
+
+    /**
+     * 快照是否仍然有效: basePackages相同且类路径指纹没有变化
+     */
+    public boolean matches(List<String> basePackages, long fingerprint) {
+        return this.fingerprint == fingerprint && this.basePackages.equals(basePackages);
+    }
+
+    public List<String> getBasePackages() {
+        return Collections.unmodifiableList(basePackages);
+    }
+
+    /**
+     * 将快照中的bean definition注册到registry, 已经注册的bean (如显式注册的配置类) 会被跳过。
+     * 先解析所有的类和构造器, 任意一个解析失败时抛出异常且不会注册任何bean definition
+     *
+     * @throws ReflectiveOperationException 快照中的类或构造器已经不存在
+     */
+    public void registerTo(BeanDefinitionRegistry registry, ClassLoader classLoader) throws ReflectiveOperationException {
+        List<String> beanNames = new ArrayList<>();
+        List<AnnotatedBeanDefinition> definitions = new ArrayList<>();
+        for (BeanEntry entry : this.beanEntries) {
+            if (!registry.containsBeanDefinition(entry.beanName)) {
+                beanNames.add(entry.beanName);
+                definitions.add(entry.toBeanDefinition(classLoader));
+            }
+        }
+        for (int i = 0; i < beanNames.size(); i++) {
+            registry.registerBeanDefinition(beanNames.get(i), definitions.get(i));
+        }
+    }
+
+    /**
+     * 先写入临时文件再原子地替换, 其他进程不会读到写了一半的快照; 文件系统不支持原子替换时退化为普通替换
+     */
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(this.fingerprint);
+            out.writeInt(this.basePackages.size());
+            for (String basePackage : this.basePackages) {
+                out.writeUTF(basePackage);
+            }
+            out.writeInt(this.beanEntries.size());
+            for (BeanEntry entry : this.beanEntries) {
+                entry.writeTo(out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        try {
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 读取快照, 文件不存在或者格式版本不匹配时返回null
+     *
+     * @throws IOException 读取失败或者快照已损坏 (如数量字段超出上限或者超出文件剩余长度)
+     */
+    public static RegistrySnapshot readFrom(Path file) throws IOException {
+        byte[] content;
+        try {
+            if (Files.size(file) > MAX_FILE_SIZE) {
+                throw new IOException("Registry snapshot " + file + " exceeds " + MAX_FILE_SIZE + " bytes");
+            }
+            content = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // 基于字节数组读取, available()就是剩余的字节数
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return null;
+            }
+            long fingerprint = in.readLong();
+            int basePackageCount = readCount(in, MIN_BASE_PACKAGE_BYTES);
+            List<String> basePackages = new ArrayList<>(basePackageCount);
+            for (int i = 0; i < basePackageCount; i++) {
+                basePackages.add(in.readUTF());
+            }
+            int beanCount = readCount(in, MIN_BEAN_ENTRY_BYTES);
+            List<BeanEntry> beanEntries = new ArrayList<>(beanCount);
+            for (int i = 0; i < beanCount; i++) {
+                beanEntries.add(BeanEntry.readFrom(in));
+            }
+            return new RegistrySnapshot(fingerprint, basePackages, beanEntries);
+        }
+    }
+
+    /**
+     * 读取数量字段, 数量为负、超出上限或者剩余的字节数不足以容纳这么多元素时抛出IOException
+     */
+    private static int readCount(DataInputStream in, int minBytesPerElement) throws IOException {
+        int count = in.readInt();
+        checkCount(count, MAX_COUNT, in, minBytesPerElement);
+        return count;
+    }
+
+    private static void checkCount(int count, int maxCount, DataInputStream in, int minBytesPerElement) throws IOException {
+        if (count < 0 || count > maxCount || (long) count * minBytesPerElement > in.available()) {
+            throw new IOException("Corrupt registry snapshot: invalid element count " + count);
+        }
+    }
+
+    /**
+     * 计算basePackages在类路径上对应的资源的指纹
+     */
+    public static long computeFingerprint(ClassLoader classLoader, List<String> basePackages) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String basePackage : basePackages) {
+            update(digest, basePackage);
+            Enumeration<URL> urls = classLoader.getResources(basePackage.replace('.', '/'));
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                update(digest, url.toString());
+                File file = toFile(url);
+                if (file != null) {
+                    updateWithFiles(digest, file, "");
+                }
+            }
+        }
+        byte[] hash = digest.digest();
+        long fingerprint = 0;
+        for (int i = 0; i < 8; i++) {
+            fingerprint = (fingerprint << 8) | (hash[i] & 0xFF);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * file协议返回对应的目录, jar协议返回jar文件本身, 其他协议返回null
+     */
+    private static File toFile(URL url) {
+        String location = url.toString();
+        if ("jar".equals(url.getProtocol())) {
+            int separator = location.indexOf("!/");
+            location = location.substring("jar:".length(), separator >= 0 ? separator : location.length());
+        }
+        if (!location.startsWith("file:")) {
+            return null;
+        }
+        try {
+            return new File(new URL(location).toURI());
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return new File(location.substring("file:".length()));
+        }
+    }
+
+    private static void updateWithFiles(MessageDigest digest, File file, String relativePath) {
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            if (names == null) {
+                return;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                updateWithFiles(digest, new File(file, name), relativePath + "/" + name);
+            }
+        } else {
+            update(digest, relativePath + ":" + file.length() + ":" + file.lastModified());
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 快照中的一个bean
+     */
+    private static final class BeanEntry {
+
+        private String beanName;
+
+        private String className;
+
+        private String scope;
+
+        private boolean lazyInit;
+
+        private byte constructorState;
+
+        /**
+         * 构造器的参数类型
+         */
+        private String[] parameterTypes;
+
+        /**
+         * 每个参数对应的bean name, ObjectProvider参数为null
+         */
+        private String[] argumentNames;
+
+        /**
+         * ObjectProvider参数的目标类型, 其余参数为null
+         */
+        private String[] providerTypes;
+
+        static BeanEntry of(String beanName, AnnotatedBeanDefinition abd) {
+            BeanEntry entry = new BeanEntry();
+            entry.beanName = beanName;
+            entry.className = abd.getBeanClassName();
+            entry.scope = abd.getScope();
+            entry.lazyInit = abd.isLazyInit();
+            if (!abd.isConstructorResolved()) {
+                entry.constructorState = CONSTRUCTOR_UNRESOLVED;
+            } else if (abd.getResolvedConstructor() == null) {
+                entry.constructorState = CONSTRUCTOR_DEFAULT;
+            } else {
+                entry.constructorState = CONSTRUCTOR_RESOLVED;
+                Class<?>[] types = abd.getResolvedConstructor().getParameterTypes();
+                Class<?>[] providers = abd.getResolvedConstructorProviderTypes();
+                entry.parameterTypes = new String[types.length];
+                entry.argumentNames = abd.getResolvedConstructorArgumentNames().clone();
+                entry.providerTypes = new String[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    entry.parameterTypes[i] = types[i].getName();
+                    if (providers != null && providers[i] != null) {
+                        entry.providerTypes[i] = providers[i].getName();
+                    }
+                }
+            }
+            return entry;
+        }
+
+        AnnotatedBeanDefinition toBeanDefinition(ClassLoader classLoader) throws ReflectiveOperationException {
+            Class<?> beanClass = Class.forName(this.className, false, classLoader);
+            AnnotatedBeanDefinition abd = new AnnotatedBeanDefinition(beanClass);
+            abd.setScope(this.scope);
+            abd.setLazyInit(this.lazyInit);
+            if (this.constructorState == CONSTRUCTOR_DEFAULT) {
+                abd.cacheResolvedConstructor(null, null);
+            } else if (this.constructorState == CONSTRUCTOR_RESOLVED) {
+                Class<?>[] types = new Class<?>[this.parameterTypes.length];
+                Class<?>[] providers = null;
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = Class.forName(this.parameterTypes[i], false, classLoader);
+                    if (this.providerTypes[i] != null) {
+                        if (providers == null) {
+                            providers = new Class<?>[types.length];
+                        }
+                        providers[i] = Class.forName(this.providerTypes[i], false, classLoader);
+                    }
+                }
+                Constructor<?> constructor = beanClass.getDeclaredConstructor(types);
+                abd.cacheResolvedConstructor(constructor, this.argumentNames, providers);
+            }
+            return abd;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(this.beanName);
+            out.writeUTF(this.className);
+            out.writeUTF(this.scope);
+            out.writeBoolean(this.lazyInit);
+            out.writeByte(this.constructorState);
+            if (this.constructorState == CONSTRUCTOR_RESOLVED) {
+                out.writeShort(this.parameterTypes.length);
+                for (int i = 0; i < this.parameterTypes.length; i++) {
+                    out.writeUTF(this.parameterTypes[i]);
+                    writeNullableUTF(out, this.argumentNames[i]);
+                    writeNullableUTF(out, this.providerTypes[i]);
+                }
+            }
+        }
+
+        static BeanEntry readFrom(DataInputStream in) throws IOException {
+            BeanEntry entry = new BeanEntry();
+            entry.beanName = in.readUTF();
+            entry.className = in.readUTF();
+            entry.scope = in.readUTF();
+            entry.lazyInit = in.readBoolean();
+            entry.constructorState = in.readByte();
+            if (entry.constructorState < CONSTRUCTOR_UNRESOLVED || entry.constructorState > CONSTRUCTOR_RESOLVED) {
+                throw new IOException("Corrupt registry snapshot: invalid constructor state " + entry.constructorState);
+            }
+            if (entry.constructorState == CONSTRUCTOR_RESOLVED) {
+                int parameterCount = in.readUnsignedShort();
+                checkCount(parameterCount, Character.MAX_VALUE, in, MIN_PARAMETER_BYTES);
+                entry.parameterTypes = new String[parameterCount];
+                entry.argumentNames = new String[parameterCount];
+                entry.providerTypes = new String[parameterCount];
+                for (int i = 0; i < parameterCount; i++) {
+                    entry.parameterTypes[i] = in.readUTF();
+                    entry.argumentNames[i] = readNullableUTF(in);
+                    entry.providerTypes[i] = readNullableUTF(in);
+                }
+            }
+            return entry;
+        }
+
+        private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readNullableUTF(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
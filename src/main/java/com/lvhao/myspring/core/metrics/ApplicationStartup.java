@@ -0,0 +1,22 @@
+package com.lvhao.myspring.core.metrics;
+
+/**
+ * 记录容器启动过程中各个阶段 (StartupStep) 的耗时, 仿照Spring的ApplicationStartup。
+ * <p>
+ * 默认实现DEFAULT不做任何记录, 需要分析启动耗时时可以在refresh之前设置BufferingApplicationStartup
+ */
+public interface ApplicationStartup {
+
+    /**
+     * 不做任何记录的默认实现
+     */
+    ApplicationStartup DEFAULT = new DefaultApplicationStartup();
+
+    /**
+     * 开始一个阶段, 调用方必须在阶段结束时调用StartupStep#end。
+     * 同一线程中未结束的阶段是新阶段的父阶段
+     *
+     * @param name 阶段名称, 如 myspring.beans.instantiate
+     */
+    StartupStep start(String name);
+}
@@ -0,0 +1,218 @@
+package com.lvhao.myspring.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 在内存中记录已结束阶段的ApplicationStartup, refresh结束后可通过getSteps查询。
+ * <p>
+ * 每个线程维护自己当前未结束的阶段, 新阶段以它为父阶段, 因此嵌套创建的bean会记录在外层bean的阶段之下。
+ * 在其他线程上开始的阶段 (如并行创建单例时) 没有父阶段。
+ * <p>
+ * 最多记录capacity个阶段, 超出后的阶段不再记录; 调用stopRecording之后 (容器在refresh结束时调用)
+ * 也不再记录, 避免refresh之后创建的原型bean等持续占用内存
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final int capacity;
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    /**
+     * 已记录的阶段数量, endedSteps.size()需要遍历队列, 因此单独计数
+     */
+    private final AtomicInteger recordedCount = new AtomicInteger();
+
+    private volatile boolean recording = true;
+
+    private final ThreadLocal<BufferedStartupStep> currentStep = new ThreadLocal<>();
+
+    private final Queue<BufferedStartupStep> endedSteps = new ConcurrentLinkedQueue<>();
+
+    public BufferingApplicationStartup() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 最多记录的阶段数量
+     */
+    public BufferingApplicationStartup(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 停止记录, 之后开始的阶段都使用不做任何记录的空实现; 已记录的阶段仍然可以查询
+     */
+    public void stopRecording() {
+        this.recording = false;
+    }
+
+    public boolean isRecording() {
+        return this.recording;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public StartupStep start(String name) {
+        if (!this.recording || this.recordedCount.get() >= this.capacity) {
+            return DEFAULT.start(name);
+        }
+        BufferedStartupStep parent = this.currentStep.get();
+        BufferedStartupStep step = new BufferedStartupStep(this.idGenerator.incrementAndGet(), name, parent);
+        this.currentStep.set(step);
+        return step;
+    }
+
+    /**
+     * 已结束的阶段, 按开始的先后顺序排列
+     */
+    public List<BufferedStartupStep> getSteps() {
+        List<BufferedStartupStep> steps = new ArrayList<>(this.endedSteps);
+        steps.sort(Comparator.comparingLong(BufferedStartupStep::getId));
+        return steps;
+    }
+
+    /**
+     * 指定阶段的直接子阶段, 按开始的先后顺序排列
+     */
+    public List<BufferedStartupStep> getChildren(StartupStep parent) {
+        List<BufferedStartupStep> children = new ArrayList<>();
+        for (BufferedStartupStep step : getSteps()) {
+            if (step.getParentId() != null && step.getParentId() == parent.getId()) {
+                children.add(step);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * 清空已记录的阶段
+     */
+    public void clear() {
+        this.endedSteps.clear();
+        this.recordedCount.set(0);
+    }
+
+    private void record(BufferedStartupStep step) {
+        // start时的容量检查没有加锁, 并发结束的阶段在这里再检查一次
+        if (this.recordedCount.incrementAndGet() <= this.capacity) {
+            this.endedSteps.add(step);
+        } else {
+            this.recordedCount.decrementAndGet();
+        }
+        // 结束的不一定是当前线程最内层的阶段 (如调用方漏掉了end), 只有在匹配时才回退到父阶段
+        if (this.currentStep.get() == step) {
+            if (step.parent != null) {
+                this.currentStep.set(step.parent);
+            } else {
+                this.currentStep.remove();
+            }
+        }
+    }
+
+    /**
+     * 被记录的阶段, 除了阶段本身的信息外还记录了开始时间和耗时
+     */
+    public class BufferedStartupStep implements StartupStep {
+
+        private final long id;
+
+        private final String name;
+
+        private final BufferedStartupStep parent;
+
+        private final Map<String, String> tags = new LinkedHashMap<>();
+
+        private final long startTime = System.nanoTime();
+
+        private volatile long endTime = -1L;
+
+        BufferedStartupStep(long id, String name, BufferedStartupStep parent) {
+            this.id = id;
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return (parent != null ? parent.id : null);
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            synchronized (this.tags) {
+                this.tags.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return tag(key, value.get());
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+            synchronized (this.tags) {
+                return Collections.unmodifiableMap(new LinkedHashMap<>(this.tags));
+            }
+        }
+
+        /**
+         * 开始时间, System#nanoTime的值, 只能用于同一个ApplicationStartup中的阶段之间的比较
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * 阶段的耗时, 阶段未结束时返回-1
+         */
+        public long getDuration(TimeUnit unit) {
+            long end = this.endTime;
+            return (end < 0 ? -1L : unit.convert(end - this.startTime, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void end() {
+            if (this.endTime >= 0) {
+                throw new IllegalStateException("StartupStep [" + name + "] has already ended");
+            }
+            this.endTime = System.nanoTime();
+            record(this);
+        }
+
+        @Override
+        public String toString() {
+            return name + getTags() + " " + getDuration(TimeUnit.MICROSECONDS) + "us";
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.lvhao.myspring.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 不做任何记录的ApplicationStartup, 所有阶段共享同一个空实现, 不会产生额外的对象
+ */
+class DefaultApplicationStartup implements ApplicationStartup {
+
+    private static final DefaultStartupStep STEP = new DefaultStartupStep();
+
+    @Override
+    public StartupStep start(String name) {
+        return STEP;
+    }
+
+    static class DefaultStartupStep implements StartupStep {
+
+        @Override
+        public String getName() {
+            return "default";
+        }
+
+        @Override
+        public long getId() {
+            return 0L;
+        }
+
+        @Override
+        public Long getParentId() {
+            return null;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            return this;
+        }
+
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return this;
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
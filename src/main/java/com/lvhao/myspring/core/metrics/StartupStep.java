@@ -0,0 +1,39 @@
+package com.lvhao.myspring.core.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 启动过程中的一个阶段, 由ApplicationStartup#start开始, 由end结束
+ */
+public interface StartupStep {
+
+    String getName();
+
+    /**
+     * 阶段的唯一id
+     */
+    long getId();
+
+    /**
+     * 父阶段的id, 不存在父阶段时返回null
+     */
+    Long getParentId();
+
+    /**
+     * 为阶段添加一个标签, 如bean的名称
+     */
+    StartupStep tag(String key, String value);
+
+    /**
+     * 为阶段添加一个标签, 标签的值只在需要记录时才计算
+     */
+    StartupStep tag(String key, Supplier<String> value);
+
+    Map<String, String> getTags();
+
+    /**
+     * 结束该阶段
+     */
+    void end();
+}
@@ -0,0 +1,37 @@
+package com.lvhao.myspring.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 销毁单例时有bean的destroy方法抛出异常或者超时, 其余的bean仍然会被销毁
+ */
+public class BeanDestructionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 复制为LinkedHashMap, 保持失败的先后顺序并保证异常可以序列化
+     */
+    private final LinkedHashMap<String, Throwable> failures;
+
+    public BeanDestructionException(Map<String, Throwable> failures) {
+        super("Error in destroying beans: " + failures.keySet(), failures.values().iterator().next());
+        this.failures = new LinkedHashMap<>(failures);
+        boolean first = true;
+        for (Throwable failure : failures.values()) {
+            if (!first) {
+                addSuppressed(failure);
+            }
+            first = false;
+        }
+    }
+
+    /**
+     * bean name -> 销毁失败的原因, 按失败的先后顺序排列 (不可修改)
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+}
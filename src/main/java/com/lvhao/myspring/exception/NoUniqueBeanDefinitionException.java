@@ -0,0 +1,27 @@
+package com.lvhao.myspring.exception;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按类型获取bean时存在多个候选bean
+ */
+public class NoUniqueBeanDefinitionException extends NoSuchBeanDefinitionException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 复制为ArrayList, 保证异常可以序列化
+     */
+    private final ArrayList<String> beanNamesFound;
+
+    public NoUniqueBeanDefinitionException(Class<?> type, List<String> beanNamesFound) {
+        super("expected single matching bean of type " + type.getName() + " but found "
+                + beanNamesFound.size() + ": " + beanNamesFound);
+        this.beanNamesFound = new ArrayList<>(beanNamesFound);
+    }
+
+    public List<String> getBeanNamesFound() {
+        return beanNamesFound;
+    }
+}
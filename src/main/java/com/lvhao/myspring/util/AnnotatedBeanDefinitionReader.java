@@ -1,13 +1,18 @@
 package com.lvhao.myspring.util;
 
 import com.lvhao.myspring.annotation.context.ComponentScan;
+import com.lvhao.myspring.annotation.context.Lazy;
 import com.lvhao.myspring.annotation.context.Scope;
 import com.lvhao.myspring.annotation.stereotype.Component;
 import com.lvhao.myspring.annotation.stereotype.Configuration;
 import com.lvhao.myspring.beans.factory.AnnotatedBeanDefinition;
 import com.lvhao.myspring.beans.factory.BeanDefinition;
 import com.lvhao.myspring.beans.factory.BeanDefinitionRegistry;
+import com.lvhao.myspring.core.metrics.ApplicationStartup;
+import com.lvhao.myspring.core.metrics.StartupStep;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -21,10 +26,26 @@ public class AnnotatedBeanDefinitionReader {
 
     private BeanNameGenerator beanNameGenerator = new AnnotationBeanNameGenerator();
 
+    /**
+     * 注解的元注解信息会缓存在reader中, 多次扫描时复用
+     */
+    private ClassMetadataReader metadataReader;
+
+    private ClassLoader metadataReaderClassLoader;
+
+    private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
     public AnnotatedBeanDefinitionReader(BeanDefinitionRegistry registry) {
         this.registry = registry;
     }
 
+    /**
+     * 记录扫描和注册阶段的耗时
+     */
+    public void setApplicationStartup(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
     /**
      * 注册一个Bean，从它的注解上面获取相关的元信息
      */
@@ -35,6 +56,7 @@ public class AnnotatedBeanDefinitionReader {
         String beanName = beanNameGenerator.generateBeanName(bd, registry);
         // 获取scope信息
         parseScopeMetadata(beanClass, bd);
+        parseLazyMetadata(beanClass, bd);
 
         BeanDefinitionReaderUtils.registerBeanDefinition(beanName, bd, registry);
     }
@@ -49,9 +71,21 @@ public class AnnotatedBeanDefinitionReader {
     }
 
     /**
-     * 解析配置类的@ComponentScan, 扫描@ComponentScan路径下的bean
+     * 解析配置类的@ComponentScan, 扫描@ComponentScan路径下的bean。
+     * 所有配置类声明的basePackages会一起并行扫描
      */
     public void scan() {
+        List<String> basePackages = resolveBasePackages();
+        if (!basePackages.isEmpty()) {
+            doScan(basePackages);
+        }
+    }
+
+    /**
+     * 返回已注册的配置类上@ComponentScan声明的所有basePackages, 不会扫描类路径
+     */
+    public List<String> resolveBasePackages() {
+        List<String> basePackages = new ArrayList<>();
         List<String> bdNames = registry.getBeanDefinitionNames();
         for (String bdName : bdNames) {
             BeanDefinition bd = registry.getBeanDefinition(bdName);
@@ -61,33 +95,109 @@ public class AnnotatedBeanDefinitionReader {
                     ComponentScan[] componentScans = clazz.getAnnotationsByType(ComponentScan.class);
                     if (componentScans.length > 0) {
                         ComponentScan componentScan = componentScans[0];
-                        String[] basePackages = componentScan.basePackages();
-                        for (String basePackage : basePackages) {
-                            doScan(basePackage);
+                        for (String basePackage : componentScan.basePackages()) {
+                            if (!StringUtils.isEmpty(basePackage)) {
+                                basePackages.add(basePackage.trim());
+                            }
                         }
                     }
                 }
             }
         }
+        return basePackages;
     }
 
-    private void doScan(String basePackage) {
-        if (StringUtils.isEmpty(basePackage))
-            return;
-
-        basePackage = basePackage.trim();
-        Set<Class<?>> classes = ClassUtils.scanClasses(basePackage);
-        // 只将被@Component注解标注的类加入bean registry
-        for (Class<?> clazz : classes) {
-            if (clazz.isAnnotationPresent(Component.class)) {
-                AnnotatedBeanDefinition abd = new AnnotatedBeanDefinition(clazz);
-                String beanName = beanNameGenerator.generateBeanName(abd, registry);
-                if (registry.containsBeanDefinition(beanName)) {
-                    continue;
+    private void doScan(List<String> basePackages) {
+        // 包所在的类路径根都存在编译期生成的组件索引时, 直接从索引中获取候选类, 否则扫描该包
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        StartupStep scanStep = this.applicationStartup.start("myspring.context.scan")
+                .tag("basePackages", basePackages.toString());
+        CandidateComponentsIndex index = CandidateComponentsIndex.load(classLoader);
+        Set<String> candidateClassNames;
+        try {
+            candidateClassNames = new LinkedHashSet<>();
+            List<String> packagesToScan = new ArrayList<>(basePackages.size());
+            for (String basePackage : basePackages) {
+                if (index != null && index.covers(classLoader, basePackage)) {
+                    candidateClassNames.addAll(index.getCandidateTypes(basePackage));
+                } else {
+                    packagesToScan.add(basePackage);
+                }
+            }
+            if (!packagesToScan.isEmpty()) {
+                candidateClassNames.addAll(ClassUtils.scanClassNames(packagesToScan));
+            }
+            scanStep.tag("index", String.valueOf(index != null))
+                    .tag("scannedPackages", packagesToScan.toString())
+                    .tag("candidates", () -> String.valueOf(candidateClassNames.size()));
+        } finally {
+            scanStep.end();
+        }
+
+        // 先通过class文件判断是否是组件, 只有确定是组件的类才会被加载
+        StartupStep registerStep = this.applicationStartup.start("myspring.context.register");
+        try {
+            ClassMetadataReader metadataReader = getMetadataReader(classLoader);
+            int registered = 0;
+            for (String className : candidateClassNames) {
+                ClassMetadata metadata = metadataReader.getClassMetadata(className);
+                if (metadata != null && isCandidateComponent(metadata, metadataReader) && registerComponent(metadata)) {
+                    registered++;
                 }
-                parseScopeMetadata(clazz, abd);
-                BeanDefinitionReaderUtils.registerBeanDefinition(beanName, abd, registry);
             }
+            registerStep.tag("registered", String.valueOf(registered));
+        } finally {
+            registerStep.end();
+        }
+    }
+
+    /**
+     * 只有被@Component(或被@Component标注的注解, 如@Configuration)标注的具体类才是候选组件
+     */
+    private boolean isCandidateComponent(ClassMetadata metadata, ClassMetadataReader metadataReader) {
+        return metadata.isConcrete() && metadataReader.isAnnotated(metadata, Component.class.getName());
+    }
+
+    private ClassMetadataReader getMetadataReader(ClassLoader classLoader) {
+        if (this.metadataReader == null || this.metadataReaderClassLoader != classLoader) {
+            this.metadataReader = new ClassMetadataReader(classLoader);
+            this.metadataReaderClassLoader = classLoader;
+        }
+        return this.metadataReader;
+    }
+
+    /**
+     * 将组件加入bean registry。bean name、作用域和是否延迟初始化都从class文件中读取到的注解属性获得,
+     * bean definition只记录类名, 类在第一次被使用时才加载
+     */
+    private boolean registerComponent(ClassMetadata metadata) {
+        AnnotatedBeanDefinition abd = new AnnotatedBeanDefinition();
+        abd.setBeanClassName(metadata.getClassName());
+        Object componentName = metadata.getAnnotationAttribute(Component.class.getName(), "value");
+        String beanName = (componentName instanceof String && !StringUtils.isEmpty(((String) componentName).trim())) ?
+                ((String) componentName).trim() : beanNameGenerator.generateBeanName(abd, registry);
+        if (registry.containsBeanDefinition(beanName)) {
+            return false;
+        }
+        if (metadata.hasAnnotation(Scope.class.getName())) {
+            Object scope = metadata.getAnnotationAttribute(Scope.class.getName(), "value");
+            applyScope(scope instanceof String ? (String) scope : BeanDefinition.SCOPE_SINGLETON, abd);
+        }
+        if (metadata.hasAnnotation(Lazy.class.getName())) {
+            Object lazy = metadata.getAnnotationAttribute(Lazy.class.getName(), "value");
+            abd.setLazyInit(!(lazy instanceof Boolean) || (Boolean) lazy);
+        }
+        BeanDefinitionReaderUtils.registerBeanDefinition(beanName, abd, registry);
+        return true;
+    }
+
+    /**
+     * 从@Lazy注解中解析是否延迟初始化
+     */
+    public void parseLazyMetadata(Class<?> beanClass, BeanDefinition beanDefinition) {
+        Lazy lazy = beanClass.getAnnotation(Lazy.class);
+        if (lazy != null) {
+            beanDefinition.setLazyInit(lazy.value());
         }
     }
 
@@ -96,12 +206,20 @@ public class AnnotatedBeanDefinitionReader {
      */
     public void parseScopeMetadata(Class<?> beanClass, BeanDefinition beanDefinition) {
         if (beanClass.isAnnotationPresent(Scope.class)) {
-            Scope annotationsByType = beanClass.getAnnotationsByType(Scope.class)[0];
-            if (annotationsByType.value().equals(BeanDefinition.SCOPE_SINGLETON)) {
-                beanDefinition.setScope(BeanDefinition.SCOPE_SINGLETON);
-            } else if (annotationsByType.value().equals(BeanDefinition.SCOPE_PROTOTYPE)) {
-                beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
-            }
+            applyScope(beanClass.getAnnotationsByType(Scope.class)[0].value(), beanDefinition);
+        }
+    }
+
+    private void applyScope(String scope, BeanDefinition beanDefinition) {
+        if (scope.equals(BeanDefinition.SCOPE_SINGLETON)) {
+            beanDefinition.setScope(BeanDefinition.SCOPE_SINGLETON);
+        } else if (scope.equals(BeanDefinition.SCOPE_PROTOTYPE)) {
+            beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        } else if (scope.equals(BeanDefinition.SCOPE_POOLED)) {
+            beanDefinition.setScope(BeanDefinition.SCOPE_POOLED);
+        } else if (!StringUtils.isEmpty(scope)) {
+            // 自定义作用域, 在获取bean时才检查作用域是否已注册
+            beanDefinition.setScope(scope);
         }
     }
 }
@@ -22,8 +22,12 @@ public class AnnotationBeanNameGenerator implements BeanNameGenerator {
     /**
      * 根据@Component注解的值生成bean name (去掉前后空格), 若不存在@Component注解, 默认
      * 使用类名首字母小写。
+     * 扫描得到的bean definition还没有加载类, 此时@Component的值由扫描方从class文件中读取, 这里只根据类名生成
      */
     private String determineBeanNameFromAnnotation(AnnotatedBeanDefinition abd) {
+        if (!abd.hasBeanClass()) {
+            return StringUtils.firstLetterLowerCase(getShortClassName(abd.getBeanClassName()));
+        }
         Class<?> beanClass = abd.getBeanClass();
 
         String beanName = null;
@@ -40,4 +44,12 @@ public class AnnotationBeanNameGenerator implements BeanNameGenerator {
 
         return beanName;
     }
+
+    /**
+     * 与Class#getSimpleName一致: com.example.Outer$Inner -> Inner
+     */
+    private static String getShortClassName(String className) {
+        String shortName = className.substring(className.lastIndexOf('.') + 1);
+        return shortName.substring(shortName.lastIndexOf('$') + 1);
+    }
 }
@@ -1,8 +1,14 @@
 package com.lvhao.myspring.util;
 
+import com.lvhao.myspring.beans.factory.ObjectProvider;
+import com.lvhao.myspring.exception.BeanCreationException;
+
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Comparator;
 
@@ -16,4 +22,25 @@ public class AutowireUtils {
     public static void sortConstructors(Constructor<?>[] constructors) {
         Arrays.sort(constructors, EXECUTABLE_COMPARATOR);
     }
+
+    /**
+     * 参数类型为ObjectProvider&lt;T&gt;时返回T (泛型参数本身带有泛型时返回其原始类型), 否则返回null
+     */
+    public static Class<?> getObjectProviderType(Parameter parameter) {
+        if (parameter.getType() != ObjectProvider.class) {
+            return null;
+        }
+        Type type = parameter.getParameterizedType();
+        if (type instanceof ParameterizedType) {
+            Type targetType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (targetType instanceof Class) {
+                return (Class<?>) targetType;
+            }
+            if (targetType instanceof ParameterizedType) {
+                return (Class<?>) ((ParameterizedType) targetType).getRawType();
+            }
+        }
+        throw new BeanCreationException("Cannot determine the target type of ObjectProvider parameter: "
+                + parameter.getDeclaringExecutable());
+    }
 }
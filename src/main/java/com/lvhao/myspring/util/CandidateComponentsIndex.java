@@ -0,0 +1,128 @@
+package com.lvhao.myspring.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 编译期由myspring-processor生成的组件索引 ({@value #COMPONENTS_RESOURCE_LOCATION})。
+ * 类路径上存在索引时, 扫描@ComponentScan路径可以直接查索引, 不需要遍历文件系统。
+ * <p>
+ * 每个索引文件只覆盖它所在的类路径根目录或jar, 某个包还分布在没有索引的根目录或jar中时, 该包仍然需要扫描。
+ */
+public class CandidateComponentsIndex {
+
+    public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/myspring.components";
+
+    /**
+     * 设置为true时忽略索引, 总是扫描类路径
+     */
+    public static final String IGNORE_INDEX_PROPERTY = "myspring.index.ignore";
+
+    private static final CandidateComponentsIndex NO_INDEX =
+            new CandidateComponentsIndex(Collections.emptySet(), Collections.emptySet());
+
+    /**
+     * 类加载器 -> 索引, 使用弱引用, 不会阻止类加载器被回收 (索引中也不保存类加载器)
+     */
+    private static final Map<ClassLoader, CandidateComponentsIndex> cache =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Set<String> componentClassNames;
+
+    /**
+     * 存在索引文件的类路径根的url, 如 file:/app/classes/ 或 jar:file:/app/lib/a.jar!/
+     */
+    private final Set<String> indexedRoots;
+
+    private CandidateComponentsIndex(Set<String> componentClassNames, Set<String> indexedRoots) {
+        this.componentClassNames = componentClassNames;
+        this.indexedRoots = indexedRoots;
+    }
+
+    /**
+     * 加载classLoader下的所有索引文件, 不存在索引时返回null
+     */
+    public static CandidateComponentsIndex load(ClassLoader classLoader) {
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        CandidateComponentsIndex index = cache.computeIfAbsent(classLoader, CandidateComponentsIndex::doLoad);
+        return (index != NO_INDEX ? index : null);
+    }
+
+    private static CandidateComponentsIndex doLoad(ClassLoader classLoader) {
+        Set<String> componentClassNames = new LinkedHashSet<>();
+        Set<String> indexedRoots = new HashSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                indexedRoots.add(getRoot(url, COMPONENTS_RESOURCE_LOCATION));
+                readIndex(url, componentClassNames);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load component index from " + COMPONENTS_RESOURCE_LOCATION, e);
+        }
+        return (!indexedRoots.isEmpty() ? new CandidateComponentsIndex(componentClassNames, indexedRoots) : NO_INDEX);
+    }
+
+    /**
+     * 资源url去掉资源路径后得到所在的类路径根
+     */
+    private static String getRoot(URL url, String resourcePath) {
+        String location = url.toString();
+        if (location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
+        }
+        return (location.endsWith(resourcePath) ? location.substring(0, location.length() - resourcePath.length()) : location);
+    }
+
+    /**
+     * basePackage所在的每一个类路径根都存在索引时返回true, 否则该包需要扫描类路径
+     */
+    public boolean covers(ClassLoader classLoader, String basePackage) {
+        String packagePath = basePackage.replace('.', '/');
+        try {
+            Enumeration<URL> urls = classLoader.getResources(packagePath);
+            while (urls.hasMoreElements()) {
+                if (!this.indexedRoots.contains(getRoot(urls.nextElement(), packagePath))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void readIndex(URL url, Set<String> componentClassNames) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    componentClassNames.add(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回索引中位于basePackage及其子包下的类名
+     */
+    public Set<String> getCandidateTypes(String basePackage) {
+        String prefix = basePackage + ".";
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String className : componentClassNames) {
+            if (className.startsWith(prefix)) {
+                candidates.add(className);
+            }
+        }
+        return candidates;
+    }
+}
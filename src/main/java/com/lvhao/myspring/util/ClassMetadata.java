@@ -0,0 +1,65 @@
+package com.lvhao.myspring.util;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 直接从class文件中读取到的类元信息, 读取过程不会加载该类
+ */
+public class ClassMetadata {
+
+    private final String className;
+
+    private final int access;
+
+    /**
+     * 注解类型名 -> 注解的属性 (仅包含String、boolean和String[]类型的属性, 未显式指定的属性不包含在内)
+     */
+    private final Map<String, Map<String, Object>> annotations;
+
+    public ClassMetadata(String className, int access, Map<String, Map<String, Object>> annotations) {
+        this.className = className;
+        this.access = access;
+        this.annotations = annotations;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public boolean isInterface() {
+        return Modifier.isInterface(access);
+    }
+
+    public boolean isAbstract() {
+        return Modifier.isAbstract(access);
+    }
+
+    /**
+     * 是否是可以实例化的具体类
+     */
+    public boolean isConcrete() {
+        return !isInterface() && !isAbstract();
+    }
+
+    /**
+     * 直接标注在该类上的注解
+     */
+    public Set<String> getAnnotationTypes() {
+        return Collections.unmodifiableSet(annotations.keySet());
+    }
+
+    public boolean hasAnnotation(String annotationName) {
+        return annotations.containsKey(annotationName);
+    }
+
+    /**
+     * 获取注解的属性值, 注解不存在或者属性没有显式指定时返回null (需要调用方使用注解的默认值)
+     */
+    public Object getAnnotationAttribute(String annotationName, String attributeName) {
+        Map<String, Object> attributes = annotations.get(annotationName);
+        return (attributes != null ? attributes.get(attributeName) : null);
+    }
+}
@@ -0,0 +1,263 @@
+package com.lvhao.myspring.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 直接解析class文件的读取器: 只读取类的访问标记、类名以及类上的运行时注解,
+ * 不会加载类, 也不会执行类的静态初始化。
+ * <p>
+ * 判断注解是否被(间接)标注了某个元注解时, 会以同样的方式读取注解类型的class文件, 并缓存结果。
+ */
+public class ClassMetadataReader {
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final ClassLoader classLoader;
+
+    /**
+     * "注解类型#元注解" -> 该注解类型是否被元注解(间接)标注
+     */
+    private final Map<String, Boolean> metaAnnotationCache = new ConcurrentHashMap<>();
+
+    public ClassMetadataReader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 读取指定类的元信息, class文件不存在或无法解析时返回null
+     */
+    public ClassMetadata getClassMetadata(String className) {
+        String resourceName = className.replace('.', '/') + ClassUtils.CLASS_FILE_SUFFIX;
+        try (InputStream is = this.classLoader.getResourceAsStream(resourceName)) {
+            return (is != null ? read(is) : null);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 类上是否存在annotationName注解, 或存在被annotationName(间接)标注的注解 (如被@Component标注的@Configuration)
+     */
+    public boolean isAnnotated(ClassMetadata metadata, String annotationName) {
+        return isAnnotated(metadata, annotationName, new HashSet<>());
+    }
+
+    private boolean isAnnotated(ClassMetadata metadata, String annotationName, Set<String> visited) {
+        if (metadata.hasAnnotation(annotationName)) {
+            return true;
+        }
+        for (String annotationType : metadata.getAnnotationTypes()) {
+            if (isMetaAnnotated(annotationType, annotationName, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isMetaAnnotated(String annotationType, String metaAnnotationName, Set<String> visited) {
+        // java.lang.annotation.Retention等JDK注解不可能被自定义注解标注
+        if (annotationType.startsWith("java.") || !visited.add(annotationType)) {
+            return false;
+        }
+
+        String cacheKey = annotationType + "#" + metaAnnotationName;
+        Boolean cached = this.metaAnnotationCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        ClassMetadata annotationMetadata = getClassMetadata(annotationType);
+        boolean result = annotationMetadata != null && isAnnotated(annotationMetadata, metaAnnotationName, visited);
+        this.metaAnnotationCache.put(cacheKey, result);
+        return result;
+    }
+
+    /**
+     * 解析class文件
+     */
+    public static ClassMetadata read(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        // minor_version, major_version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        // 1. 常量池: 只保留UTF8和Class常量, 其余常量跳过
+        int constantPoolCount = in.readUnsignedShort();
+        Object[] constantPool = new Object[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    constantPool[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    constantPool[i] = new ClassRef(in.readUnsignedShort());
+                    break;
+                case 3: // Integer, boolean等注解属性的值
+                    constantPool[i] = in.readInt();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        // 2. 访问标记和类名, 跳过父类和接口
+        int access = in.readUnsignedShort();
+        String className = classNameAt(constantPool, in.readUnsignedShort());
+        in.skipBytes(2);
+        in.skipBytes(in.readUnsignedShort() * 2);
+
+        // 3. 跳过字段和方法
+        skipMembers(in);
+        skipMembers(in);
+
+        // 4. 类的属性, 只解析RuntimeVisibleAnnotations
+        Map<String, Map<String, Object>> annotations = new LinkedHashMap<>();
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = (String) constantPool[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                int annotationCount = in.readUnsignedShort();
+                for (int j = 0; j < annotationCount; j++) {
+                    String annotationType = descriptorToClassName((String) constantPool[in.readUnsignedShort()]);
+                    annotations.put(annotationType, readAnnotationAttributes(in, constantPool));
+                }
+            } else {
+                in.skipBytes(length);
+            }
+        }
+
+        return new ClassMetadata(className, access, annotations);
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int memberCount = in.readUnsignedShort();
+        for (int i = 0; i < memberCount; i++) {
+            // access_flags, name_index, descriptor_index
+            in.skipBytes(6);
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                in.skipBytes(2);
+                in.skipBytes(in.readInt());
+            }
+        }
+    }
+
+    private static Map<String, Object> readAnnotationAttributes(DataInputStream in, Object[] constantPool)
+            throws IOException {
+        Map<String, Object> attributes = new HashMap<>();
+        int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            String name = (String) constantPool[in.readUnsignedShort()];
+            Object value = readElementValue(in, constantPool);
+            if (value != null) {
+                attributes.put(name, value);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * 读取注解属性值: 只返回String、boolean和String[], 其余类型读取后丢弃 (返回null)
+     */
+    private static Object readElementValue(DataInputStream in, Object[] constantPool) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 's':
+                return constantPool[in.readUnsignedShort()];
+            case 'Z':
+                return ((Integer) constantPool[in.readUnsignedShort()]) != 0;
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'c':
+                in.skipBytes(2);
+                return null;
+            case 'e':
+                in.skipBytes(4);
+                return null;
+            case '@':
+                in.skipBytes(2);
+                readAnnotationAttributes(in, constantPool);
+                return null;
+            case '[':
+                int count = in.readUnsignedShort();
+                List<String> values = new ArrayList<>(count);
+                boolean allStrings = true;
+                for (int i = 0; i < count; i++) {
+                    Object value = readElementValue(in, constantPool);
+                    if (value instanceof String) {
+                        values.add((String) value);
+                    } else {
+                        allStrings = false;
+                    }
+                }
+                return (allStrings ? values.toArray(new String[0]) : null);
+            default:
+                throw new IOException("Unknown annotation element tag: " + (char) tag);
+        }
+    }
+
+    private static String classNameAt(Object[] constantPool, int index) {
+        ClassRef ref = (ClassRef) constantPool[index];
+        return ((String) constantPool[ref.nameIndex]).replace('/', '.');
+    }
+
+    /**
+     * Lcom/lvhao/Foo; -> com.lvhao.Foo
+     */
+    private static String descriptorToClassName(String descriptor) {
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static final class ClassRef {
+
+        final int nameIndex;
+
+        ClassRef(int nameIndex) {
+            this.nameIndex = nameIndex;
+        }
+    }
+}
@@ -1,13 +1,40 @@
 package com.lvhao.myspring.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.HashSet;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 public class ClassUtils {
 
     private static final String FILE_PREFIX = "file";
+
+    private static final String JAR_PREFIX = "jar";
+
+    /**
+     * jar url中归档文件与其内部路径的分隔符, 嵌套归档会出现多次, 如 jar:file:/app.jar!/BOOT-INF/lib/a.jar!/com/x
+     */
+    private static final String ARCHIVE_SEPARATOR = "!/";
+
+    private static final String ARCHIVE_FILE_SUFFIX = ".jar";
     
     private static final String PATH_SEPARATOR = "/";
 
@@ -43,50 +70,220 @@ public class ClassUtils {
      * @return 指定包下的类的集合
      */
     public static Set<Class<?>> scanClasses(String packageName) {
-        Set<Class<?>> classSet = new HashSet<>();
-        // 1. 获取类加载器
+        Set<Class<?>> classSet = new LinkedHashSet<>();
+        for (String className : scanClassNames(packageName)) {
+            Class<?> clazz = loadClass(className);
+            if (clazz != null) {
+                classSet.add(clazz);
+            }
+        }
+        return classSet;
+    }
+
+    /**
+     * 扫描指定包下的class文件, 只返回类的全限定名(binary name), 不加载类
+     *
+     * @param packageName 指定包名
+     * @return 指定包下的类名的集合
+     */
+    public static Set<String> scanClassNames(String packageName) {
+        return scanClassNames(Collections.singletonList(packageName));
+    }
+
+    /**
+     * 并行扫描多个包下的class文件。每个包以及包下的每个子目录都是一个fork/join任务,
+     * 结果按传入的包的顺序合并, 同一个包下的类名按字典序排列, 因此结果与线程的调度无关
+     *
+     * @param packageNames 指定包名
+     * @return 指定包下的类名的集合, 重叠的包中的类只出现一次
+     */
+    public static Set<String> scanClassNames(Collection<String> packageNames) {
+        // 1. 获取类加载器, 必须在调用线程获取, 线程池中的线程没有调用方的上下文类加载器
         ClassLoader classLoader = getDefaultClassLoader();
 
-        // 2. 通过类加载器获取到加载的资源信息
-        URL url = classLoader.getResource(packageName.replace(PACKAGE_SEPARATOR, PATH_SEPARATOR));
-        if (url == null) {
-            return classSet;
+        List<ForkJoinTask<Set<String>>> tasks = new ArrayList<>(packageNames.size());
+        for (String packageName : packageNames) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> doScanPackage(classLoader, packageName)));
+        }
+        Set<String> classNames = new LinkedHashSet<>();
+        for (ForkJoinTask<Set<String>> task : tasks) {
+            classNames.addAll(task.join());
+        }
+        return classNames;
+    }
+
+    private static Set<String> doScanPackage(ClassLoader classLoader, String packageName) {
+        Set<String> classNames = new TreeSet<>();
+
+        // 2. 通过类加载器获取到加载的资源信息, 同一个包可能分布在多个目录或jar中
+        String packagePath = packageName.replace(PACKAGE_SEPARATOR, PATH_SEPARATOR);
+        Enumeration<URL> urls;
+        try {
+            urls = classLoader.getResources(packagePath);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to get resources of package [" + packageName + "]", e);
         }
 
         // 3. 依据不同的资源类型，采用不同的方式获取资源的集合
-        if (url.getProtocol().equalsIgnoreCase(FILE_PREFIX)) {
-            File packageDir = new File(url.getPath());
-            doScanClasses(classSet, packageDir, packageName);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            if (url.getProtocol().equalsIgnoreCase(FILE_PREFIX)) {
+                classNames.addAll(new DirectoryScanTask(toFile(url.toString()), packageName).invoke());
+            } else if (url.getProtocol().equalsIgnoreCase(JAR_PREFIX)) {
+                try {
+                    doScanArchive(classNames, url);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to scan archive [" + url + "]", e);
+                }
+            }
         }
 
-        return classSet;
+        return classNames;
     }
 
-    private static void doScanClasses(Set<Class<?>> classSet, File file, String packageName) {
-        if (file.isFile()) {
-            if (file.getName().endsWith(CLASS_FILE_SUFFIX)) {
-                // 1. 从file对象获取对应class的全限定名(binary name)
-                String absolutePath = file.getAbsolutePath().replace(File.separator, ".");
-                String classBinaryName = absolutePath.substring(absolutePath.indexOf(packageName), absolutePath.lastIndexOf("."));
+    /**
+     * 扫描jar中指定包下的类, 只遍历归档的条目名, 不解压任何内容。
+     * <p>
+     * url的path形如 file:/app.jar!/com/x 。中间的段如果以.jar结尾表示嵌套的归档 (如 BOOT-INF/lib/a.jar),
+     * 否则表示归档内的类根目录 (如 BOOT-INF/classes), 最后一段是包路径。
+     * url中的路径是转义过的 (如空格为%20), 第一段在toFile中解码, 其余各段解码后再与条目名比较
+     */
+    private static void doScanArchive(Set<String> classNames, URL url) throws IOException {
+        String[] segments = url.getPath().split(ARCHIVE_SEPARATOR);
+        for (int i = 1; i < segments.length; i++) {
+            segments[i] = decodeUrlPath(segments[i]);
+        }
+        List<String> nestedArchives = new ArrayList<>();
+        String rootPrefix = "";
+        for (int i = 1; i < segments.length - 1; i++) {
+            if (segments[i].endsWith(ARCHIVE_FILE_SUFFIX)) {
+                nestedArchives.add(rootPrefix + segments[i]);
+                rootPrefix = "";
+            } else {
+                rootPrefix = rootPrefix + segments[i] + PATH_SEPARATOR;
+            }
+        }
+        String packagePath = segments.length > 1 ? segments[segments.length - 1] : "";
+        if (!packagePath.isEmpty() && !packagePath.endsWith(PATH_SEPARATOR)) {
+            packagePath = packagePath + PATH_SEPARATOR;
+        }
+        String packagePrefix = rootPrefix + packagePath;
 
-                // 2. 将对应的Class对象放入classSet
-                classSet.add(loadClass(classBinaryName));
+        try (ZipFile zipFile = new ZipFile(toFile(segments[0]))) {
+            if (nestedArchives.isEmpty()) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    addClassName(classNames, entries.nextElement().getName(), rootPrefix, packagePrefix);
+                }
+                return;
+            }
+            ZipEntry nested = zipFile.getEntry(nestedArchives.get(0));
+            if (nested == null) {
+                return;
+            }
+            try (InputStream in = zipFile.getInputStream(nested)) {
+                doScanNestedArchive(classNames, new ZipInputStream(in), nestedArchives, 1, rootPrefix, packagePrefix);
             }
-            return;
         }
+    }
 
-        File[] files = file.listFiles(pathname -> file.isDirectory() || file.getName().endsWith(CLASS_FILE_SUFFIX));
-        if (files != null) {
-            for (File f : files) {
-                doScanClasses(classSet, f, packageName);
+    /**
+     * 嵌套的归档无法随机访问, 顺序读取其条目直到找到下一层归档或到达最内层
+     */
+    private static void doScanNestedArchive(Set<String> classNames, ZipInputStream in, List<String> nestedArchives,
+                                            int depth, String rootPrefix, String packagePrefix) throws IOException {
+        ZipEntry entry;
+        while ((entry = in.getNextEntry()) != null) {
+            if (depth < nestedArchives.size()) {
+                if (entry.getName().equals(nestedArchives.get(depth))) {
+                    // 外层流由调用方关闭
+                    doScanNestedArchive(classNames, new ZipInputStream(in), nestedArchives, depth + 1, rootPrefix, packagePrefix);
+                    return;
+                }
+            } else {
+                addClassName(classNames, entry.getName(), rootPrefix, packagePrefix);
             }
         }
     }
 
-    private static Class<?> loadClass(String classBinaryName) {
+    private static void addClassName(Set<String> classNames, String entryName, String rootPrefix, String packagePrefix) {
+        if (entryName.startsWith(packagePrefix) && entryName.endsWith(CLASS_FILE_SUFFIX)) {
+            String classPath = entryName.substring(rootPrefix.length(), entryName.length() - CLASS_FILE_SUFFIX.length());
+            classNames.add(classPath.replace(PATH_SEPARATOR, PACKAGE_SEPARATOR));
+        }
+    }
+
+    /**
+     * 解码url路径中的转义字符; url路径中的'+'就是加号本身, 不能按表单编码解码为空格
+     */
+    private static String decodeUrlPath(String path) {
+        try {
+            return URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return path;
+        }
+    }
+
+    /**
+     * 将file协议的url转换为File, 并解码其中的转义字符 (如空格)
+     */
+    private static File toFile(String fileUrl) {
+        try {
+            return new File(new URL(fileUrl).toURI());
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return new File(fileUrl.startsWith(FILE_PREFIX + ":") ? fileUrl.substring(FILE_PREFIX.length() + 1) : fileUrl);
+        }
+    }
+
+    /**
+     * 扫描一个目录, 每个子目录拆分为一个子任务并行扫描
+     */
+    private static class DirectoryScanTask extends RecursiveTask<List<String>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File directory;
+
+        private final String packageName;
+
+        DirectoryScanTask(File directory, String packageName) {
+            this.directory = directory;
+            this.packageName = packageName;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<String> classNames = new ArrayList<>();
+            String[] names = directory.list();
+            if (names == null) {
+                return classNames;
+            }
+            List<DirectoryScanTask> subtasks = new ArrayList<>();
+            for (String name : names) {
+                if (name.endsWith(CLASS_FILE_SUFFIX)) {
+                    // 由所在包名和文件名拼出class的全限定名(binary name), .class文件不再额外访问文件属性
+                    classNames.add(packageName + PACKAGE_SEPARATOR + name.substring(0, name.length() - CLASS_FILE_SUFFIX.length()));
+                } else {
+                    File file = new File(directory, name);
+                    if (file.isDirectory()) {
+                        subtasks.add(new DirectoryScanTask(file, packageName + PACKAGE_SEPARATOR + name));
+                    }
+                }
+            }
+            for (DirectoryScanTask subtask : invokeAll(subtasks)) {
+                classNames.addAll(subtask.join());
+            }
+            return classNames;
+        }
+    }
+
+    /**
+     * 使用默认类加载器加载指定的类 (与扫描时查找资源的类加载器相同), 加载失败返回null
+     */
+    public static Class<?> loadClass(String classBinaryName) {
         Class<?> ret = null;
         try {
-            ret = Class.forName(classBinaryName);
+            ret = Class.forName(classBinaryName, true, getDefaultClassLoader());
         } catch (ClassNotFoundException e) {
             // do nothing
         }
@@ -94,4 +291,23 @@ public class ClassUtils {
         return ret;
     }
 
+    /**
+     * 返回clazz及其所有父类实现的全部接口 (包括接口继承的接口), 按声明顺序排列
+     */
+    public static Set<Class<?>> getAllInterfaces(Class<?> clazz) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            collectInterfaces(current, interfaces);
+        }
+        return interfaces;
+    }
+
+    private static void collectInterfaces(Class<?> clazz, Set<Class<?>> interfaces) {
+        for (Class<?> ifc : clazz.getInterfaces()) {
+            if (interfaces.add(ifc)) {
+                collectInterfaces(ifc, interfaces);
+            }
+        }
+    }
+
 }
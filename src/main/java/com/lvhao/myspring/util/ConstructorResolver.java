@@ -1,6 +1,7 @@
 package com.lvhao.myspring.util;
 
 import com.lvhao.myspring.beans.factory.AbstractAutowireCapableBeanFactory;
+import com.lvhao.myspring.beans.factory.AnnotatedBeanDefinition;
 import com.lvhao.myspring.beans.factory.AutowireCapableBeanFactory;
 import com.lvhao.myspring.beans.factory.BeanDefinition;
 import com.lvhao.myspring.beans.factory.DefaultListableBeanFactory;
@@ -39,12 +40,9 @@ public class ConstructorResolver {
         // ------- 只有一个构造器且是无参的, 不需要参数解析 ---------------
 
         if (candidates.length == 1 && candidates[0].getParameterCount() == 0) {
-            try {
-                candidates[0].setAccessible(true);
-                return candidates[0].newInstance();
-            } catch (Throwable e) {
-                throw new BeanCreationException("autowireConstructor(): Error in invoking no-arg constructor for bean " + beanName);
-            }
+            Object bean = this.beanFactory.getInstantiationStrategy().instantiate(bd, beanName, candidates[0]);
+            cacheResolvedConstructor(bd, candidates[0], new String[0], null);
+            return bean;
         }
 
 
@@ -57,21 +55,21 @@ public class ConstructorResolver {
 
         for (Constructor<?> candidate : candidates) {
             MethodArguments arguments = null;
+            String[] argumentNames = new String[candidate.getParameterCount()];
+            Class<?>[] providerTypes = new Class<?>[candidate.getParameterCount()];
             // 尝试获取构造器参数的依赖, 若存在不被满足的依赖, 则跳过该构造器
             try {
-                arguments = resolveConstructorArguments(candidate);
+                arguments = resolveConstructorArguments(candidate, beanName, argumentNames, providerTypes);
             } catch (BeanCreationException e) {
                 continue;
             }
 
             Object[] argumentValues = arguments.getMethodArgumentValues();
-            candidate.setAccessible(true);
-            try {
-                bean = candidate.newInstance(argumentValues);
-                break;
-            } catch (Throwable e) {
-                throw new BeanCreationException("Error in instantiating bean: " + beanName);
-            }
+            adaptArguments(candidate, argumentNames, argumentValues);
+            bean = this.beanFactory.getInstantiationStrategy().instantiate(bd, beanName, candidate, argumentValues);
+            cacheResolvedConstructor(bd, candidate, argumentNames, hasProvider(providerTypes) ? providerTypes : null);
+            registerDependentBeans(bd, beanName, argumentNames);
+            break;
         }
 
         if (bean == null) {
@@ -81,7 +79,74 @@ public class ConstructorResolver {
         return bean;
     }
 
-    private MethodArguments resolveConstructorArguments(Constructor<?> candidate)
+    /**
+     * 使用bean definition上缓存的构造器及参数解析结果创建bean对象, 跳过构造器的挑选
+     */
+    public Object instantiateUsingResolvedConstructor(String beanName, AnnotatedBeanDefinition abd) {
+        Constructor<?> constructor = abd.getResolvedConstructor();
+        String[] argumentNames = abd.getResolvedConstructorArgumentNames();
+        Class<?>[] providerTypes = abd.getResolvedConstructorProviderTypes();
+
+        Object[] argumentValues = new Object[argumentNames.length];
+        for (int i = 0; i < argumentNames.length; i++) {
+            argumentValues[i] = (providerTypes != null && providerTypes[i] != null) ?
+                    this.beanFactory.getBeanProvider(providerTypes[i], beanName) : this.beanFactory.getBean(argumentNames[i]);
+        }
+        adaptArguments(constructor, argumentNames, argumentValues);
+
+        registerDependentBeans(abd, beanName, argumentNames);
+        return this.beanFactory.getInstantiationStrategy().instantiate(abd, beanName, constructor, argumentValues);
+    }
+
+    /**
+     * 记录单例通过构造器注入的bean, 用于确定销毁顺序
+     */
+    private void registerDependentBeans(BeanDefinition bd, String beanName, String[] argumentNames) {
+        if (bd.isSingleton()) {
+            for (String argumentName : argumentNames) {
+                if (argumentName != null) {
+                    this.beanFactory.registerDependentBean(argumentName, beanName);
+                }
+            }
+        }
+    }
+
+    private void cacheResolvedConstructor(BeanDefinition bd, Constructor<?> constructor, String[] argumentNames,
+                                          Class<?>[] providerTypes) {
+        if (bd instanceof AnnotatedBeanDefinition) {
+            ((AnnotatedBeanDefinition) bd).cacheResolvedConstructor(constructor, argumentNames, providerTypes);
+        }
+    }
+
+    private static boolean hasProvider(Class<?>[] providerTypes) {
+        for (Class<?> providerType : providerTypes) {
+            if (providerType != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查注入的bean是否是构造器参数类型的实例: bean可能被BeanPostProcessor替换为只实现了接口的JDK代理,
+     * 此时抛出说明原因的BeanCreationException, 而不是在调用构造器时抛出IllegalArgumentException。
+     * argumentNames中为null的是ObjectProvider参数, 不需要检查
+     */
+    private void adaptArguments(Constructor<?> constructor, String[] argumentNames, Object[] argumentValues) {
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        for (int i = 0; i < argumentValues.length; i++) {
+            if (argumentNames[i] != null) {
+                argumentValues[i] = this.beanFactory.adaptBeanInstance(argumentNames[i], argumentValues[i], parameterTypes[i]);
+            }
+        }
+    }
+
+    /**
+     * 解析构造器的参数, 并将每个参数选中的bean name记录到argumentNames中,
+     * ObjectProvider参数不会立即解析, 只将其目标类型记录到providerTypes中
+     */
+    private MethodArguments resolveConstructorArguments(Constructor<?> candidate, String requestingBeanName,
+                                                        String[] argumentNames, Class<?>[] providerTypes)
             throws BeanCreationException {
         List<MethodArguments.ArgumentHolder> methodArguments = new ArrayList<>();
 
@@ -95,6 +160,17 @@ public class ConstructorResolver {
             String argName = parameter.getName();
             Class<?> argType = parameter.getType();
             Object argValue = null;
+
+            // ObjectProvider参数注入一个延迟解析的provider
+            Class<?> providerType = AutowireUtils.getObjectProviderType(parameter);
+            if (providerType != null) {
+                providerTypes[argIndex] = providerType;
+                argValue = this.beanFactory.getBeanProvider(providerType, requestingBeanName);
+                methodArguments.add(new MethodArguments.ArgumentHolder(argIndex, argName, argType, argValue));
+                argIndex++;
+                continue;
+            }
+
             Map<String, Object> autowireCandidates = this.beanFactory.findAutowireCandidate(argType, argName);
             // 2.2 该参数不能被满足 --> 则该构造器不能被满足 --> 抛异常结束
             if (autowireCandidates.isEmpty()) {
@@ -105,6 +181,7 @@ public class ConstructorResolver {
                 // 如果是beanClass，需要调用getBean获取bean对象
                 argValue = (autowireCandidates.get(beanName) instanceof Class) ?
                         this.beanFactory.getBean(beanName) : autowireCandidates.get(beanName);
+                argumentNames[argIndex] = beanName;
             }
 
             // 2.4 将房钱参数添加到参数列表